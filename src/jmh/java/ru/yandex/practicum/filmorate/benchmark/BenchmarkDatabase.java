@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.generator.DatasetGenerator;
+import ru.yandex.practicum.filmorate.generator.DatasetSpec;
+import ru.yandex.practicum.filmorate.storage.RatingMpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.jdbc.InstrumentedJdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.Duration;
+import java.util.UUID;
+
+// Встроенная H2 со схемой из миграций, заполненная DatasetGenerator с фиксированным seed, и хранилища поверх неё
+public class BenchmarkDatabase implements AutoCloseable {
+
+    private final EmbeddedDatabase dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final GenreDbStorage genreStorage;
+    private final RatingMpaDbStorage ratingMpaStorage;
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final LikeDbStorage likeStorage;
+
+    public BenchmarkDatabase(int films, int users, int likesPerUser, int friendsPerUser) {
+        this(films, users, likesPerUser, friendsPerUser, 64);
+    }
+
+    public BenchmarkDatabase(int films, int users, int likesPerUser, int friendsPerUser, int queryCacheSize) {
+        this(films, users, likesPerUser, friendsPerUser, queryCacheSize, 500);
+    }
+
+    // Параметры H2 дописываются к имени базы: EmbeddedDatabaseBuilder подставляет его в URL как есть.
+    // JdbcTemplate тот же, что в приложении: он считает запросы для QueryCounter, а медленными
+    // в бенчмарке запросы не считаются, чтобы полные выборки не засоряли лог
+    public BenchmarkDatabase(int films, int users, int likesPerUser, int friendsPerUser, int queryCacheSize,
+                             int genreBatchSize) {
+        dataSource = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName(UUID.randomUUID() + ";QUERY_CACHE_SIZE=" + queryCacheSize)
+                .build();
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbcTemplate = new InstrumentedJdbcTemplate(dataSource, new SimpleMeterRegistry(), Duration.ofDays(1));
+        new DatasetGenerator(jdbcTemplate)
+                .generate(new DatasetSpec(42, users, films, users * likesPerUser, friendsPerUser, 1.0));
+
+        genreStorage = new GenreDbStorage(jdbcTemplate, new SimpleMeterRegistry());
+        genreStorage.invalidateCache();
+        ratingMpaStorage = new RatingMpaDbStorage(jdbcTemplate, new SimpleMeterRegistry());
+        ratingMpaStorage.invalidateCache();
+        filmStorage = new FilmDbStorage(jdbcTemplate, genreStorage, ratingMpaStorage, genreBatchSize);
+        userStorage = new UserDbStorage(jdbcTemplate);
+        userStorage.rebuildFriendsGraph();
+        likeStorage = new LikeDbStorage(jdbcTemplate);
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public GenreDbStorage getGenreStorage() {
+        return genreStorage;
+    }
+
+    public RatingMpaDbStorage getRatingMpaStorage() {
+        return ratingMpaStorage;
+    }
+
+    public FilmDbStorage getFilmStorage() {
+        return filmStorage;
+    }
+
+    public UserDbStorage getUserStorage() {
+        return userStorage;
+    }
+
+    public LikeDbStorage getLikeStorage() {
+        return likeStorage;
+    }
+
+    @Override
+    public void close() {
+        dataSource.shutdown();
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.event.EventDbStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Запись в журнал событий по одному и пакетами, а также чтение хвоста ленты по ключу:
+// первая страница и страница из середины длинной истории должны стоить одинаково
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EventLogBenchmark {
+
+    private static final int USERS = 1000;
+    private static final int BATCH = 1000;
+    private static final int PAGE = 100;
+
+    @Param({"100000"})
+    private int events;
+
+    private BenchmarkDatabase database;
+    private EventDbStorage eventStorage;
+    private long middleEventId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(0, 0, 0, 0);
+        eventStorage = new EventDbStorage(database.getJdbcTemplate());
+        for (int written = 0; written < events; written += BATCH) {
+            eventStorage.addEvents(batch(Math.min(BATCH, events - written)));
+        }
+        List<Event> history = eventStorage.getEvents(1, 0, Integer.MAX_VALUE);
+        middleEventId = history.get(history.size() / 2).getEventId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void appendOne() {
+        eventStorage.addEvents(batch(1));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void appendBatch() {
+        eventStorage.addEvents(batch(BATCH));
+    }
+
+    @Benchmark
+    public List<Event> readFirstPage() {
+        return eventStorage.getEvents(1, 0, PAGE);
+    }
+
+    @Benchmark
+    public List<Event> readMiddlePage() {
+        return eventStorage.getEvents(1, middleEventId, PAGE);
+    }
+
+    private static List<Event> batch(int size) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Event> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(Event.builder()
+                    .userId(random.nextInt(USERS) + 1)
+                    .eventType(Event.EventType.LIKE)
+                    .operation(Event.Operation.ADD)
+                    .entityId(random.nextInt(10_000) + 1)
+                    .timestamp(System.currentTimeMillis())
+                    .build());
+        }
+        return batch;
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.yandex.practicum.filmorate.controller.FilmView;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Размер ответа и аллокации на запрос видны с профилировщиком: -prof gc даёт gc.alloc.rate.norm,
+// а размер каждого варианта печатается при подготовке
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilmJsonBenchmark {
+
+    @Param({"1000"})
+    private int films;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final ObjectMapper blackbirdMapper = new ObjectMapper().findAndRegisterModules()
+            .registerModule(new BlackbirdModule());
+    private BenchmarkDatabase database;
+    private List<Film> filmList;
+    private FilmView compactView;
+    private FilmView idNameView;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        database = new BenchmarkDatabase(films, 0, 0, 0);
+        filmList = database.getFilmStorage().getAllFilms();
+        compactView = FilmView.of(filmList, null, true);
+        idNameView = FilmView.of(filmList, "id,name", false);
+        System.out.printf("full=%d compact=%d id,name=%d bytes%n", serializeFilms().length,
+                serializeCompactView().length, serializeIdNameView().length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public byte[] serializeFilms() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(filmList);
+    }
+
+    @Benchmark
+    public byte[] serializeFilmsWithBlackbird() throws JsonProcessingException {
+        return blackbirdMapper.writeValueAsBytes(filmList);
+    }
+
+    @Benchmark
+    public byte[] serializeCompactView() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(compactView);
+    }
+
+    @Benchmark
+    public byte[] serializeIdNameView() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(idNameView);
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.jdbc.QueryCounter;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// genreBatchSize=1 воспроизводит загрузку жанров до пакетной: один запрос жанров на каждый фильм списка.
+// Рядом со временем выводится queriesPerCall — среднее число запросов к базе на один вызов
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilmStorageBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int films;
+
+    @Param({"1", "500"})
+    private int genreBatchSize;
+
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(films, films / 10, 20, 0, 64, genreBatchSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Film> getAllFilms(Queries queries) {
+        QueryCounter.start();
+        List<Film> result = database.getFilmStorage().getAllFilms();
+        queries.record(QueryCounter.stop());
+        return result;
+    }
+
+    @Benchmark
+    public List<Film> getMostPopularFilms(Queries queries) {
+        QueryCounter.start();
+        List<Film> result = database.getFilmStorage().getMostPopularFilms(10);
+        queries.record(QueryCounter.stop());
+        return result;
+    }
+
+    @Benchmark
+    public Film getFilmById(Queries queries) {
+        QueryCounter.start();
+        Film result = database.getFilmStorage().getFilmById(1 + ThreadLocalRandom.current().nextInt(films));
+        queries.record(QueryCounter.stop());
+        return result;
+    }
+
+    // Публичное поле JMH выводит как дополнительный результат; счёт начинается заново в каждой итерации
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Queries {
+
+        public double queriesPerCall;
+
+        private long queries;
+        private long calls;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            queries = 0;
+            calls = 0;
+            queriesPerCall = 0;
+        }
+
+        void record(int count) {
+            queries += count;
+            calls++;
+            queriesPerCall = (double) queries / calls;
+        }
+    }
+}
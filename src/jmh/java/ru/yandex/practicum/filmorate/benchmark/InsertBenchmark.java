@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.RatingMpa;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Стоимость одной вставки фильма: новый SimpleJdbcInsert на каждый вызов (как было раньше),
+// общий SimpleJdbcInsert из FilmDbStorage и пакетная вставка. queryCacheSize=8 — значение H2 по умолчанию
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InsertBenchmark {
+
+    private static final int BATCH = 100;
+
+    @Param({"8", "64"})
+    private int queryCacheSize;
+
+    private BenchmarkDatabase database;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(0, 0, 0, 0, queryCacheSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Number newSimpleJdbcInsertPerCall() {
+        Film film = film();
+        return new SimpleJdbcInsert(database.getJdbcTemplate())
+                .withTableName("films")
+                .usingColumns("film_name", "description", "duration", "release_date", "rating_id")
+                .usingGeneratedKeyColumns("film_id")
+                .executeAndReturnKey(new MapSqlParameterSource()
+                        .addValue("film_name", film.getName())
+                        .addValue("description", film.getDescription())
+                        .addValue("duration", film.getDuration())
+                        .addValue("release_date", film.getReleaseDate())
+                        .addValue("rating_id", film.getMpa().getId()));
+    }
+
+    @Benchmark
+    public Film sharedSimpleJdbcInsert() {
+        return database.getFilmStorage().createFilm(film());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<Film> batchInsert() {
+        List<Film> films = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            films.add(film());
+        }
+        return database.getFilmStorage().createFilms(films);
+    }
+
+    private static Film film() {
+        return Film.builder()
+                .name("Benchmark film")
+                .description("Inserted by InsertBenchmark")
+                .duration(100L)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .mpa(new RatingMpa(1, null))
+                .genres(Set.of(new Genre(1, null), new Genre(2, null)))
+                .build();
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.yandex.practicum.filmorate.storage.like.RecommendationIndex;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// 20 000 пользователей по 50 лайков — миллион лайков с популярностью фильмов по Ципфу
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RecommendationBenchmark {
+
+    @Param({"20000"})
+    private int users;
+
+    private BenchmarkDatabase database;
+    private RecommendationIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(users / 2, users, 50, 0);
+        index = new RecommendationIndex(database.getLikeStorage(), 20, 2000);
+        index.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Integer> recommend() {
+        return index.recommend(1 + ThreadLocalRandom.current().nextInt(users), 10);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void rebuild() {
+        index.rebuild();
+    }
+}
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryLikeStorage;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryStore;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Одинаковая нагрузка на FilmDbStorage/UserDbStorage/LikeDbStorage и на движок в памяти,
+// заполненный теми же данными: id совпадают, потому что DatasetGenerator нумерует с единицы
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class StorageEngineBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 10_000;
+
+    @Param({"jdbc", "memory"})
+    private String engine;
+
+    private BenchmarkDatabase database;
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+    private LikeStorage likeStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(FILMS, USERS, 20, 10);
+        if ("jdbc".equals(engine)) {
+            filmStorage = database.getFilmStorage();
+            userStorage = database.getUserStorage();
+            likeStorage = database.getLikeStorage();
+            return;
+        }
+        InMemoryStore store = new InMemoryStore();
+        InMemoryFilmStorage memoryFilmStorage = new InMemoryFilmStorage(store, database.getGenreStorage(),
+                database.getRatingMpaStorage());
+        filmStorage = memoryFilmStorage;
+        userStorage = new InMemoryUserStorage(store);
+        likeStorage = new InMemoryLikeStorage(store, memoryFilmStorage);
+
+        List<Film> films = database.getFilmStorage().getAllFilms();
+        films.sort(Comparator.comparingInt(Film::getId));
+        filmStorage.createFilms(films);
+        List<User> users = database.getUserStorage().getAllUsers();
+        users.sort(Comparator.comparingInt(User::getId));
+        userStorage.createUsers(users);
+        database.getLikeStorage().forEachLike(like -> likeStorage.addLike(like.filmId(), like.userId()));
+        for (User user : users) {
+            for (User friend : database.getUserStorage().getFriends(user.getId())) {
+                userStorage.addFriend(user.getId(), friend.getId());
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return filmStorage.getFilmById(randomId(FILMS));
+    }
+
+    @Benchmark
+    public List<Film> getFilmsPage() {
+        return filmStorage.getFilms(randomId(FILMS - 100), 100);
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        return userStorage.getCommonFriends(randomId(USERS), randomId(USERS));
+    }
+
+    // Поровну добавлений и удалений, чтобы число лайков не росло за время прогона
+    @Benchmark
+    public boolean toggleLike() {
+        int filmId = randomId(FILMS);
+        int userId = randomId(USERS);
+        return likeStorage.addLike(filmId, userId) || likeStorage.deleteLike(filmId, userId);
+    }
+
+    private static int randomId(int max) {
+        return ThreadLocalRandom.current().nextInt(max) + 1;
+    }
+}
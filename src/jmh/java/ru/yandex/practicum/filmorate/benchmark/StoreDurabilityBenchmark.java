@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryStore;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Журнал хранилища в памяти: пропускная способность записи с групповым fsync из нескольких потоков
+// и время восстановления из снимка и из одного только журнала
+public class StoreDurabilityBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Writes {
+
+        @Param({"true", "false"})
+        private boolean syncWrites;
+
+        private Path directory;
+        private InMemoryStore store;
+        private InMemoryUserStorage userStorage;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("filmorate-wal");
+            store = new InMemoryStore(directory.toString(), syncWrites);
+            store.recover();
+            userStorage = new InMemoryUserStorage(store);
+            for (int i = 0; i < 10_000; i++) {
+                userStorage.createUser(user(i));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            store.close();
+            deleteDirectory(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recovery {
+
+        @Param({"1000000"})
+        private int users;
+
+        @Param({"true", "false"})
+        private boolean fromSnapshot;
+
+        private Path directory;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("filmorate-recovery");
+            InMemoryStore store = new InMemoryStore(directory.toString(), false);
+            store.recover();
+            InMemoryUserStorage userStorage = new InMemoryUserStorage(store);
+            for (int i = 0; i < users; i++) {
+                userStorage.createUser(user(i));
+            }
+            if (fromSnapshot) {
+                store.checkpoint();
+            }
+            store.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public boolean toggleFriend(Writes writes) {
+        int userId = ThreadLocalRandom.current().nextInt(10_000) + 1;
+        int friendId = ThreadLocalRandom.current().nextInt(10_000) + 1;
+        if (writes.userStorage.isFriend(userId, friendId)) {
+            writes.userStorage.removeFriend(userId, friendId);
+            return false;
+        }
+        writes.userStorage.addFriend(userId, friendId);
+        return true;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public InMemoryStore recover(Recovery recovery) throws IOException {
+        InMemoryStore store = new InMemoryStore(recovery.directory.toString(), false);
+        store.recover();
+        return store;
+    }
+
+    private static User user(int i) {
+        return User.builder()
+                .email("user" + i + "@example.com")
+                .login("user" + i)
+                .name("User " + i)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
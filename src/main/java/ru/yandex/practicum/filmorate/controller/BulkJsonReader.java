@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// Читает JSON-массив из тела запроса потоково, не держа его в памяти целиком.
+// Каждый элемент валидируется, а в обработчик они передаются пачками по filmorate.bulk.batch-size
+@Component
+public class BulkJsonReader {
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int batchSize;
+
+    public BulkJsonReader(ObjectMapper objectMapper, Validator validator,
+                          @Value("${filmorate.bulk.batch-size:1000}") int batchSize) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = batchSize;
+    }
+
+    // Пачки, переданные до ошибки в данных, уже обработаны: каждая пишется в базу своей транзакцией
+    public <T> int read(InputStream body, Class<T> type, Consumer<List<T>> handler) throws IOException {
+        int count = 0;
+        List<T> batch = new ArrayList<>(batchSize);
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ValidationException("Ожидается JSON-массив");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                T item = objectMapper.readValue(parser, type);
+                validate(item, count);
+                batch.add(item);
+                count++;
+                if (batch.size() >= batchSize) {
+                    handler.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (token != JsonToken.END_ARRAY) {
+                throw new ValidationException("Элемент " + count + " не является JSON-объектом");
+            }
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("Некорректный JSON в элементе " + count + ": " + e.getOriginalMessage());
+        }
+        if (!batch.isEmpty()) {
+            handler.accept(batch);
+        }
+        return count;
+    }
+
+    private <T> void validate(T item, int index) {
+        Set<ConstraintViolation<T>> violations = validator.validate(item);
+        if (!violations.isEmpty()) {
+            throw new ValidationException("Элемент " + index + ": " + violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .collect(Collectors.joining(" ")));
+        }
+    }
+}
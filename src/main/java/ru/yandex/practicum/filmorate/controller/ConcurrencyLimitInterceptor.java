@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.controller.ConcurrencyLimiter.Priority;
+import ru.yandex.practicum.filmorate.exception.TooManyRequestsException;
+
+import java.util.Set;
+
+// Сбрасывает лишнюю нагрузку на /films и /users: сверх адаптивного лимита запрос сразу получает 429
+// с Retry-After, а не ждёт в очереди, пока истечёт таймаут клиента. Полные выборки, поиск, выгрузки
+// и массовый импорт идут с низким приоритетом, лайки, дружба и чтение одного фильма — с высоким.
+// Включается filmorate.concurrency.enabled=true; лимиты стоит подбирать под размер пула соединений
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.concurrency.enabled", havingValue = "true")
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".start";
+    private static final String STREAMING_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".streaming";
+
+    private static final Set<String> LOW_PRIORITY = Set.of(
+            "GET /films", "GET /films/search", "GET /films/stream", "GET /films/export", "POST /films/bulk",
+            "GET /users", "GET /users/stream", "GET /users/export", "POST /users/bulk");
+
+    private final ConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitInterceptor(MeterRegistry meterRegistry,
+                                       @Value("${filmorate.concurrency.initial-limit:20}") int initialLimit,
+                                       @Value("${filmorate.concurrency.min-limit:4}") int minLimit,
+                                       @Value("${filmorate.concurrency.max-limit:200}") int maxLimit,
+                                       @Value("${filmorate.concurrency.low-priority-share:0.5}")
+                                       double lowPriorityShare) {
+        this.limiter = new ConcurrencyLimiter(initialLimit, minLimit, maxLimit, lowPriorityShare, meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Повторная диспетчеризация после асинхронной обработки уже была учтена при первом входе
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        Priority priority = priority(request);
+        if (!limiter.tryAcquire(priority)) {
+            log.debug("Лимит {} одновременных запросов исчерпан, отклонён {} {}", limiter.getLimit(),
+                    request.getMethod(), request.getRequestURI());
+            throw new TooManyRequestsException("Сервис перегружен, повторите запрос позже");
+        }
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    // Потоковый ответ пишется уже после выхода из контроллера, и место держится до его окончания:
+    // иначе одновременных выгрузок было бы сколько угодно. Освобождает его afterCompletion повторной
+    // диспетчеризации, которая приходит и при успехе, и при ошибке или таймауте
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        if (request.getAttribute(START_ATTRIBUTE) != null) {
+            request.setAttribute(STREAMING_ATTRIBUTE, Boolean.TRUE);
+        }
+    }
+
+    // Длительность потокового ответа зависит от объёма выгрузки и скорости клиента, а не от нагрузки,
+    // поэтому в замер задержки она не попадает
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        request.removeAttribute(START_ATTRIBUTE);
+        if (request.getAttribute(STREAMING_ATTRIBUTE) != null) {
+            request.removeAttribute(STREAMING_ATTRIBUTE);
+            limiter.release();
+        } else {
+            limiter.release(System.nanoTime() - (long) start);
+        }
+    }
+
+    private static Priority priority(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null && LOW_PRIORITY.contains(request.getMethod() + " " + pattern)
+                ? Priority.LOW
+                : Priority.HIGH;
+    }
+}
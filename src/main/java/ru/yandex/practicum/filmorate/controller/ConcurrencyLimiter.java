@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Адаптивный лимит одновременных запросов по градиенту задержки: пока текущая задержка близка к долгой
+// средней, лимит растёт на sqrt(limit), а когда база начинает тормозить и задержка растёт, лимит сжимается
+// пропорционально их отношению. Запросам низкого приоритета доступна только часть лимита, поэтому
+// при перегрузке первыми отклоняются они
+public class ConcurrencyLimiter {
+
+    public enum Priority {
+        HIGH,
+        LOW
+    }
+
+    // Допустимый рост задержки относительно долгой средней, при котором лимит ещё не уменьшается
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double lowPriorityShare;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejectedHigh;
+    private final Counter rejectedLow;
+
+    private volatile double limit;
+    // Долгая экспоненциальная средняя задержки в наносекундах, меняется только под synchronized
+    private double longRtt;
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double lowPriorityShare,
+                              MeterRegistry meterRegistry) {
+        if (minLimit <= 0 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Некорректные границы лимита: " + minLimit + " <= "
+                    + initialLimit + " <= " + maxLimit);
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.lowPriorityShare = lowPriorityShare;
+        this.rejectedHigh = rejectedCounter(meterRegistry, Priority.HIGH);
+        this.rejectedLow = rejectedCounter(meterRegistry, Priority.LOW);
+        meterRegistry.gauge("filmorate.concurrency.limit", this, ConcurrencyLimiter::getLimit);
+        meterRegistry.gauge("filmorate.concurrency.in-flight", inFlight);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, Priority priority) {
+        return Counter.builder("filmorate.concurrency.rejected")
+                .tag("priority", priority.name().toLowerCase())
+                .register(meterRegistry);
+    }
+
+    // Возвращает false, если запрос нужно отклонить сразу, не ставя его в очередь
+    public boolean tryAcquire(Priority priority) {
+        int allowed = priority == Priority.HIGH
+                ? (int) limit
+                : Math.max(1, (int) (limit * lowPriorityShare));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                (priority == Priority.HIGH ? rejectedHigh : rejectedLow).increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Освобождает место без замера, например для потоковых ответов, длительность которых не связана с нагрузкой
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public void release(long rttNanos) {
+        int inFlightAtEnd = inFlight.getAndDecrement();
+        onSample(rttNanos, inFlightAtEnd);
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtEnd) {
+        double shortRtt = Math.max(1, rttNanos);
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) / LONG_WINDOW;
+        }
+        // После долгой перегрузки средняя успевает вырасти; возвращаем её вниз, чтобы лимит смог восстановиться
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        double current = limit;
+        // Запросов заметно меньше лимита: задержка ничего не говорит о том, выдержим ли мы больше
+        if (inFlightAtEnd < current / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double newLimit = current * gradient + Math.sqrt(current);
+        newLimit = current * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+}
@@ -1,16 +1,20 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.LikeService;
 
-import java.util.Collection;
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
 
 @RestController
 @RequestMapping("/films")
@@ -20,6 +24,8 @@ public class FilmController {
 
     private final FilmService filmService;
     private final LikeService likeService;
+    private final ObjectMapper objectMapper;
+    private final BulkJsonReader bulkJsonReader;
 
     @PostMapping
     public Film createFilm(@Valid @RequestBody Film film) {
@@ -29,19 +35,60 @@ public class FilmController {
         return createdFilm;
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ImportResult createFilms(InputStream body) throws IOException {
+        int created = bulkJsonReader.read(body, Film.class, filmService::addFilms);
+        log.info("Импортировано фильмов: {}", created);
+        return new ImportResult(created);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody exportFilms() {
+        return JsonArrayStreams.of(objectMapper, filmService::forEachFilm);
+    }
+
     @PutMapping
     public Film updateFilm(@Valid @RequestBody Film film) {
         return filmService.updateFilm(film);
     }
 
     @GetMapping
-    public List<Film> getAllFilms() {
-        return filmService.getAllFilms();
+    public FilmView getAllFilms(@RequestParam(required = false) Integer afterId,
+                                @RequestParam(required = false) Integer limit,
+                                @RequestParam(required = false) String fields,
+                                @RequestParam(defaultValue = "false") boolean compact) {
+        if (limit == null) {
+            return FilmView.of(filmService.getAllFilms(), fields, compact);
+        }
+        return FilmView.of(filmService.getFilms(afterId == null ? 0 : afterId, limit), fields, compact);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAllFilms() {
+        return NdjsonStreams.of(objectMapper, filmService::forEachFilm);
+    }
+
+    @GetMapping("/search")
+    public FilmView searchFilms(@RequestParam String query,
+                                @RequestParam(defaultValue = "title") String by,
+                                @RequestParam(defaultValue = "100") int limit,
+                                @RequestParam(required = false) String fields,
+                                @RequestParam(defaultValue = "false") boolean compact) {
+        return FilmView.of(filmService.searchFilms(query, by, limit), fields, compact);
     }
 
     @GetMapping("/{filmId}")
-    public Film getFilmById(@PathVariable int filmId) {
-        return filmService.getFilmById(filmId);
+    public Film getFilmById(@PathVariable int filmId, WebRequest request) {
+        // Версия фильма известна индексу в памяти, поэтому при совпадении ETag фильм не загружается
+        String etag = filmService.getFilmETag(filmId);
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        Film film = filmService.getFilmById(filmId);
+        if (etag == null && request.checkNotModified(filmService.getFilmETag(film))) {
+            return null;
+        }
+        return film;
     }
 
     @DeleteMapping("/{filmId}")
@@ -50,10 +97,21 @@ public class FilmController {
         log.info("Фильм с ID {} был удален", filmId);
     }
 
+    // Без @ResponseStatus: он перезаписал бы статус 304, выставленный checkNotModified
     @GetMapping("/popular")
-    @ResponseStatus(HttpStatus.OK)
-    public Collection<Film> getMostPopularFilms(@RequestParam(defaultValue = "10") int count) {
-        return filmService.getTopFilms(count);
+    public FilmView getMostPopularFilms(@RequestParam(defaultValue = "10") int count,
+                                        @RequestParam(required = false) Integer genreId,
+                                        @RequestParam(required = false) Integer year,
+                                        @RequestParam(required = false) String fields,
+                                        @RequestParam(defaultValue = "false") boolean compact,
+                                        WebRequest request) {
+        // ETag строится по выдаче рейтинга в памяти, поэтому при совпадении база не читается.
+        // Разные fields и compact — разные тела ответа, поэтому представление входит в ETag
+        String view = FilmView.key(fields, compact);
+        if (request.checkNotModified(filmService.getTopFilmsETag(count, genreId, year, view))) {
+            return null;
+        }
+        return FilmView.of(filmService.getTopFilms(count, genreId, year), fields, compact);
     }
 
     @PutMapping("/{id}/like/{userId}")
@@ -0,0 +1,173 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
+// Список фильмов с выбранными полями (?fields=id,name) и компактным режимом (?compact=true),
+// в котором жанры и рейтинг MPA передаются только идентификаторами. Без параметров список
+// сериализуется как обычно, а выборочные поля пишутся прямо в JsonGenerator без рефлексии
+@JsonSerialize(using = FilmView.Serializer.class)
+public final class FilmView {
+
+    public enum Field {
+        ID("id"),
+        NAME("name"),
+        DESCRIPTION("description"),
+        RELEASE_DATE("releaseDate"),
+        DURATION("duration"),
+        GENRES("genres"),
+        MPA("mpa");
+
+        private final String jsonName;
+
+        Field(String jsonName) {
+            this.jsonName = jsonName;
+        }
+    }
+
+    private final Collection<Film> films;
+    private final Set<Field> fields;
+    private final boolean compact;
+
+    private FilmView(Collection<Film> films, Set<Field> fields, boolean compact) {
+        this.films = films;
+        this.fields = fields;
+        this.compact = compact;
+    }
+
+    public static FilmView of(Collection<Film> films, String fields, boolean compact) {
+        return new FilmView(films, parseFields(fields), compact);
+    }
+
+    // Ключ представления для ETag: равные наборы полей, например "id,name" и "name, id", дают один ключ
+    public static String key(String fields, boolean compact) {
+        int mask = 0;
+        for (Field field : parseFields(fields)) {
+            mask |= 1 << field.ordinal();
+        }
+        return (compact ? "c" : "f") + Integer.toHexString(mask);
+    }
+
+    public Collection<Film> getFilms() {
+        return films;
+    }
+
+    private boolean isFull() {
+        return !compact && fields.size() == Field.values().length;
+    }
+
+    private static Set<Field> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return EnumSet.allOf(Field.class);
+        }
+        Set<Field> selected = EnumSet.noneOf(Field.class);
+        for (String name : fields.split(",")) {
+            selected.add(field(name.trim()));
+        }
+        return selected;
+    }
+
+    private static Field field(String jsonName) {
+        for (Field field : Field.values()) {
+            if (field.jsonName.equals(jsonName)) {
+                return field;
+            }
+        }
+        throw new ValidationException("Неизвестное поле фильма: " + jsonName);
+    }
+
+    static class Serializer extends JsonSerializer<FilmView> {
+
+        @Override
+        public void serialize(FilmView view, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray();
+            if (view.isFull()) {
+                for (Film film : view.films) {
+                    provider.defaultSerializeValue(film, gen);
+                }
+            } else {
+                for (Film film : view.films) {
+                    writeFilm(film, view, gen);
+                }
+            }
+            gen.writeEndArray();
+        }
+
+        private static void writeFilm(Film film, FilmView view, JsonGenerator gen) throws IOException {
+            Set<Field> fields = view.fields;
+            gen.writeStartObject();
+            if (fields.contains(Field.ID)) {
+                gen.writeNumberField("id", film.getId());
+            }
+            if (fields.contains(Field.NAME)) {
+                gen.writeStringField("name", film.getName());
+            }
+            if (fields.contains(Field.DESCRIPTION)) {
+                gen.writeStringField("description", film.getDescription());
+            }
+            if (fields.contains(Field.RELEASE_DATE)) {
+                gen.writeFieldName("releaseDate");
+                if (film.getReleaseDate() == null) {
+                    gen.writeNull();
+                } else {
+                    gen.writeString(film.getReleaseDate().toString());
+                }
+            }
+            if (fields.contains(Field.DURATION)) {
+                gen.writeFieldName("duration");
+                if (film.getDuration() == null) {
+                    gen.writeNull();
+                } else {
+                    gen.writeNumber(film.getDuration());
+                }
+            }
+            if (fields.contains(Field.GENRES)) {
+                writeGenres(film, view.compact, gen);
+            }
+            if (fields.contains(Field.MPA)) {
+                writeMpa(film, view.compact, gen);
+            }
+            gen.writeEndObject();
+        }
+
+        private static void writeGenres(Film film, boolean compact, JsonGenerator gen) throws IOException {
+            gen.writeArrayFieldStart(compact ? "genreIds" : "genres");
+            if (film.getGenres() != null) {
+                for (Genre genre : film.getGenres()) {
+                    if (compact) {
+                        gen.writeNumber(genre.getId());
+                    } else {
+                        gen.writeStartObject();
+                        gen.writeNumberField("id", genre.getId());
+                        gen.writeStringField("name", genre.getName());
+                        gen.writeEndObject();
+                    }
+                }
+            }
+            gen.writeEndArray();
+        }
+
+        private static void writeMpa(Film film, boolean compact, JsonGenerator gen) throws IOException {
+            if (film.getMpa() == null) {
+                gen.writeNullField(compact ? "mpaId" : "mpa");
+            } else if (compact) {
+                gen.writeNumberField("mpaId", film.getMpa().getId());
+            } else {
+                gen.writeObjectFieldStart("mpa");
+                gen.writeNumberField("id", film.getMpa().getId());
+                gen.writeStringField("name", film.getMpa().getName());
+                gen.writeEndObject();
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package ru.yandex.practicum.filmorate.controller;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -8,22 +10,36 @@ import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
+import java.time.Duration;
 import java.util.Collection;
 
+// Справочник меняется редко: ответы кэшируются клиентом на max-age, а после него проверяются по ETag
 @RestController
-@RequiredArgsConstructor
 @RequestMapping("/genres")
 public class GenreController {
     private final GenreService genreService;
+    private final CacheControl cacheControl;
+
+    public GenreController(GenreService genreService,
+                           @Value("${filmorate.http.dictionary-max-age:1h}") Duration maxAge) {
+        this.genreService = genreService;
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+    }
 
     @GetMapping
-    public Collection<Genre> getGenres() {
-        return genreService.getAllGenres();
+    public ResponseEntity<Collection<Genre>> getGenres() {
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag("genres-" + genreService.getGeneration())
+                .body(genreService.getAllGenres());
     }
 
     @GetMapping("/{id}")
-    public Genre getGenreById(@PathVariable Integer id) {
-        return genreService.getGenreById(id);
+    public ResponseEntity<Genre> getGenreById(@PathVariable Integer id) {
+        Genre genre = genreService.getGenreById(id);
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag("genre-" + id + "-" + genreService.getGeneration())
+                .body(genre);
     }
-    // проверочный коммент
-}
\ No newline at end of file
+}
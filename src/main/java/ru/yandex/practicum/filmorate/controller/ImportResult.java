@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.controller;
+
+public record ImportResult(int created) {
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    // Blackbird заменяет рефлексию в геттерах и сеттерах на вызовы через LambdaMetafactory;
+    // Spring Boot сам регистрирует бины Module в общем ObjectMapper
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.json.blackbird.enabled", havingValue = "true", matchIfMissing = true)
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
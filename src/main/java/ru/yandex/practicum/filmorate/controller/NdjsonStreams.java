@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+// Пишет объекты в ответ построчно (NDJSON) по мере их чтения из хранилища
+final class NdjsonStreams {
+
+    private NdjsonStreams() {
+    }
+
+    static <T> StreamingResponseBody of(ObjectMapper objectMapper, Consumer<Consumer<T>> source) {
+        return out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                source.accept(item -> {
+                    try {
+                        generator.writeObject(item);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.storage.jdbc.QueryCounter;
+
+// Число запросов к базе на один HTTP-запрос по шаблону пути: рост метрики сразу показывает проблему N+1.
+// Для асинхронного ответа считаются запросы до выхода из контроллера: счётчик привязан к потоку,
+// поэтому он снимается, когда поток возвращается в пул, а повторная диспетчеризация не учитывается
+@Component
+@RequiredArgsConstructor
+public class QueryCountInterceptor implements AsyncHandlerInterceptor {
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.ASYNC) {
+            QueryCounter.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        record(request, QueryCounter.stop());
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getDispatcherType() != DispatcherType.ASYNC) {
+            record(request, QueryCounter.stop());
+        }
+    }
+
+    private void record(HttpServletRequest request, int queries) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder("filmorate.http.queries")
+                .tag("method", request.getMethod())
+                .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                .register(meterRegistry)
+                .record(queries);
+    }
+}
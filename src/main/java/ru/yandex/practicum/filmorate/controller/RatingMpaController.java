@@ -1,12 +1,17 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.RatingMpa;
 import ru.yandex.practicum.filmorate.service.RatingMpaService;
+
+import java.time.Duration;
 import java.util.List;
 
 @Slf4j
@@ -15,20 +20,30 @@ import java.util.List;
 public class RatingMpaController {
 
     private final RatingMpaService ratingMpaService;
+    private final CacheControl cacheControl;
 
-    public RatingMpaController(RatingMpaService ratingMpaService) {
+    public RatingMpaController(RatingMpaService ratingMpaService,
+                               @Value("${filmorate.http.dictionary-max-age:1h}") Duration maxAge) {
         this.ratingMpaService = ratingMpaService;
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePublic();
     }
 
     @GetMapping
-    public List<RatingMpa> getRatingsMpa() {
+    public ResponseEntity<List<RatingMpa>> getRatingsMpa() {
         log.info("Запрос на все MPA");
-        return ratingMpaService.getRatingsMpa();
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag("mpa-" + ratingMpaService.getGeneration())
+                .body(ratingMpaService.getRatingsMpa());
     }
 
     @GetMapping("/{id}")
-    public RatingMpa getRatingMpaById(@PathVariable Integer id) {
+    public ResponseEntity<RatingMpa> getRatingMpaById(@PathVariable Integer id) {
         log.info("Запрос на получение MPA c id {}", id);
-        return ratingMpaService.getRatingMpaById(id);
+        RatingMpa mpa = ratingMpaService.getRatingMpaById(id);
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .eTag("mpa-" + id + "-" + ratingMpaService.getGeneration())
+                .body(mpa);
     }
-}
\ No newline at end of file
+}
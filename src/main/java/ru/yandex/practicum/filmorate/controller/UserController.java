@@ -1,12 +1,20 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @Slf4j
@@ -15,10 +23,17 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final BulkJsonReader bulkJsonReader;
+    private final RecommendationService recommendationService;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper, BulkJsonReader bulkJsonReader,
+                          RecommendationService recommendationService) {
         this.userService = userService;
+        this.recommendationService = recommendationService;
+        this.objectMapper = objectMapper;
+        this.bulkJsonReader = bulkJsonReader;
     }
 
     @PostMapping
@@ -29,14 +44,35 @@ public class UserController {
         return createdUser;
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ImportResult createUsers(InputStream body) throws IOException {
+        int created = bulkJsonReader.read(body, User.class, userService::createUsers);
+        log.info("Импортировано пользователей: {}", created);
+        return new ImportResult(created);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody exportUsers() {
+        return JsonArrayStreams.of(objectMapper, userService::forEachUser);
+    }
+
     @PutMapping
     public User updateUser(@Valid @RequestBody User user) {
         return userService.updateUser(user);
     }
 
     @GetMapping
-    public List<User> getAllUsers() {
-        return userService.getAllUsers();
+    public List<User> getAllUsers(@RequestParam(required = false) Integer afterId,
+                                  @RequestParam(required = false) Integer limit) {
+        if (limit == null) {
+            return userService.getAllUsers();
+        }
+        return userService.getUsers(afterId == null ? 0 : afterId, limit);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAllUsers() {
+        return NdjsonStreams.of(objectMapper, userService::forEachUser);
     }
 
     @PutMapping("/{id}/friends/{friendId}")
@@ -54,6 +90,23 @@ public class UserController {
         return userService.getAllFriends(id);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable Integer id, @RequestParam(defaultValue = "10") int limit) {
+        return userService.getFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/feed")
+    public List<Event> getFeed(@PathVariable Integer id,
+                               @RequestParam(defaultValue = "0") long afterId,
+                               @RequestParam(defaultValue = "100") int limit) {
+        return userService.getFeed(id, afterId, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable Integer id, @RequestParam(defaultValue = "10") int limit) {
+        return recommendationService.getRecommendations(id, limit);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable Integer id, @PathVariable Integer otherId) {
         return userService.getCommonFriends(id, otherId);
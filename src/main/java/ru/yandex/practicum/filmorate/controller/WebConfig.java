@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Optional;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+    private final QueryCountInterceptor queryCountInterceptor;
+    private final Optional<ConcurrencyLimitInterceptor> concurrencyLimitInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Лимитер стоит первым: отклонённый запрос не должен доходить даже до подсчёта запросов к базе
+        concurrencyLimitInterceptor.ifPresent(interceptor -> registry.addInterceptor(interceptor)
+                .addPathPatterns("/films/**", "/users/**"));
+        registry.addInterceptor(queryCountInterceptor);
+    }
+}
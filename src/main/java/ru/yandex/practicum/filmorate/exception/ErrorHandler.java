@@ -1,8 +1,13 @@
 package ru.yandex.practicum.filmorate.exception;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -32,6 +37,24 @@ public class ErrorHandler {
         return new ErrorResponse(e.getMessage());
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ErrorResponse handleTooManyRequestsException(TooManyRequestsException e, HttpServletResponse response) {
+        log.warn("Запрос отклонён из-за перегрузки: {}", e.getMessage());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        return new ErrorResponse(e.getMessage());
+    }
+
+    // Нет свободного соединения с базой: клиенту стоит повторить запрос чуть позже
+    @ExceptionHandler({CannotGetJdbcConnectionException.class, CannotCreateTransactionException.class,
+            TransientDataAccessResourceException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleConnectionUnavailable(Exception e, HttpServletResponse response) {
+        log.warn("Нет свободного соединения с базой: {}", e.getMessage());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        return new ErrorResponse("Сервис перегружен, повторите запрос позже");
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleDataIntegrityViolationException(DataIntegrityViolationException e) {
@@ -0,0 +1,207 @@
+package ru.yandex.practicum.filmorate.generator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// Генератор данных для нагрузочных тестов и бенчмарков.
+// Популярность фильмов распределена по Ципфу, граф дружбы строится предпочтительным присоединением,
+// поэтому степени пользователей подчиняются степенному закону. Строки вставляются пакетами JDBC
+@Slf4j
+public class DatasetGenerator {
+
+    private static final int BATCH_SIZE = 5000;
+    private static final LocalDate MIN_BIRTHDAY = LocalDate.of(1950, 1, 1);
+    private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1900, 1, 1);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DatasetGenerator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public DatasetStats generate(DatasetSpec spec) {
+        long start = System.currentTimeMillis();
+        Random random = new Random(spec.seed());
+        int firstUserId = nextId("users", "user_id");
+        int firstFilmId = nextId("films", "film_id");
+
+        int users = insertUsers(spec, random, firstUserId);
+        int films = insertFilms(spec, random, firstFilmId);
+        int filmGenres = insertFilmGenres(spec, random, firstFilmId);
+        int likes = insertLikes(spec, random, firstUserId, firstFilmId);
+        int friends = insertFriends(spec, random, firstUserId);
+
+        restartIdentity("users", "user_id", firstUserId + spec.users());
+        restartIdentity("films", "film_id", firstFilmId + spec.films());
+        jdbcTemplate.update("UPDATE films SET like_count = "
+                + "(SELECT COUNT(*) FROM likes WHERE likes.film_id = films.film_id) WHERE film_id >= ?", firstFilmId);
+
+        DatasetStats stats = new DatasetStats(users, films, filmGenres, likes, friends,
+                System.currentTimeMillis() - start);
+        log.info("Сгенерирован набор данных: {}, {} строк/с", stats, stats.rowsPerSecond());
+        return stats;
+    }
+
+    private int insertUsers(DatasetSpec spec, Random random, int firstUserId) {
+        String sqlQuery = "INSERT INTO users (user_id, user_name, login, email, birthday) VALUES (?, ?, ?, ?, ?)";
+        Batch batch = new Batch(sqlQuery);
+        for (int i = 0; i < spec.users(); i++) {
+            int userId = firstUserId + i;
+            batch.add(userId, "User " + userId, "user" + userId, "user" + userId + "@example.com",
+                    Date.valueOf(MIN_BIRTHDAY.plusDays(random.nextInt(20000))));
+        }
+        return batch.finish();
+    }
+
+    private int insertFilms(DatasetSpec spec, Random random, int firstFilmId) {
+        List<Integer> ratingIds = jdbcTemplate.queryForList("SELECT rating_id FROM rating_mpa", Integer.class);
+        String sqlQuery = "INSERT INTO films (film_id, film_name, description, duration, release_date, rating_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?)";
+        Batch batch = new Batch(sqlQuery);
+        for (int i = 0; i < spec.films(); i++) {
+            int filmId = firstFilmId + i;
+            batch.add(filmId, "Film " + filmId, "Generated film number " + filmId, 60 + random.nextInt(120),
+                    Date.valueOf(MIN_RELEASE_DATE.plusDays(random.nextInt(45000))),
+                    ratingIds.get(random.nextInt(ratingIds.size())));
+        }
+        return batch.finish();
+    }
+
+    private int insertFilmGenres(DatasetSpec spec, Random random, int firstFilmId) {
+        List<Integer> genreIds = jdbcTemplate.queryForList("SELECT genre_id FROM genres", Integer.class);
+        Batch batch = new Batch("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)");
+        for (int i = 0; i < spec.films(); i++) {
+            int count = random.nextInt(Math.min(3, genreIds.size()) + 1);
+            Set<Integer> chosen = new HashSet<>();
+            while (chosen.size() < count) {
+                chosen.add(genreIds.get(random.nextInt(genreIds.size())));
+            }
+            for (Integer genreId : chosen) {
+                batch.add(firstFilmId + i, genreId);
+            }
+        }
+        return batch.finish();
+    }
+
+    // Фильм выбирается по закону Ципфа: ранги перемешаны, чтобы популярные фильмы не шли подряд по id
+    private int insertLikes(DatasetSpec spec, Random random, int firstUserId, int firstFilmId) {
+        if (spec.films() == 0 || spec.users() == 0) {
+            return 0;
+        }
+        long maxLikes = (long) spec.films() * spec.users();
+        int likes = (int) Math.min(spec.likes(), maxLikes / 2);
+        double[] cdf = zipfCdf(spec.films(), spec.zipfExponent());
+        int[] filmByRank = shuffledRange(spec.films(), random);
+        Set<Long> seen = new HashSet<>(likes * 2);
+        Batch batch = new Batch("INSERT INTO likes (film_id, user_id) VALUES (?, ?)");
+        while (seen.size() < likes) {
+            int rank = Arrays.binarySearch(cdf, random.nextDouble() * cdf[cdf.length - 1]);
+            int filmId = firstFilmId + filmByRank[rank < 0 ? Math.min(-rank - 1, cdf.length - 1) : rank];
+            int userId = firstUserId + random.nextInt(spec.users());
+            if (seen.add(((long) filmId << 32) | userId)) {
+                batch.add(filmId, userId);
+            }
+        }
+        return batch.finish();
+    }
+
+    // Предпочтительное присоединение: новый пользователь чаще дружит с теми, у кого уже много связей
+    private int insertFriends(DatasetSpec spec, Random random, int firstUserId) {
+        if (spec.users() < 2 || spec.friendsPerUser() == 0) {
+            return 0;
+        }
+        int[] endpoints = new int[spec.users() * spec.friendsPerUser() * 2];
+        int endpointCount = 0;
+        Set<Long> seen = new HashSet<>();
+        Batch batch = new Batch("INSERT INTO friends (user_id, friend_id, status) VALUES (?, ?, TRUE)");
+        for (int i = 1; i < spec.users(); i++) {
+            int edges = Math.min(spec.friendsPerUser(), i);
+            for (int e = 0; e < edges; e++) {
+                int target = endpointCount > 0 && random.nextBoolean()
+                        ? endpoints[random.nextInt(endpointCount)]
+                        : random.nextInt(i);
+                if (seen.add(((long) i << 32) | target)) {
+                    batch.add(firstUserId + i, firstUserId + target);
+                    endpoints[endpointCount++] = i;
+                    endpoints[endpointCount++] = target;
+                }
+            }
+        }
+        return batch.finish();
+    }
+
+    private static double[] zipfCdf(int size, double exponent) {
+        double[] cdf = new double[size];
+        double total = 0;
+        for (int rank = 0; rank < size; rank++) {
+            total += 1 / Math.pow(rank + 1, exponent);
+            cdf[rank] = total;
+        }
+        return cdf;
+    }
+
+    private static int[] shuffledRange(int size, Random random) {
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+        return values;
+    }
+
+    private int nextId(String table, String idColumn) {
+        Integer maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(" + idColumn + "), 0) FROM " + table,
+                Integer.class);
+        return (maxId == null ? 0 : maxId) + 1;
+    }
+
+    // Строки вставлены с явными id, поэтому счётчик identity нужно сдвинуть вручную
+    private void restartIdentity(String table, String idColumn, int nextId) {
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN " + idColumn + " RESTART WITH " + nextId);
+    }
+
+    private class Batch {
+        private final String sqlQuery;
+        private final List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        private int total;
+
+        Batch(String sqlQuery) {
+            this.sqlQuery = sqlQuery;
+        }
+
+        void add(Object... row) {
+            rows.add(row);
+            if (rows.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        int finish() {
+            flush();
+            return total;
+        }
+
+        private void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.batchUpdate(sqlQuery, rows);
+            total += rows.size();
+            rows.clear();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.generator;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.like.LikeListener;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.util.List;
+
+// Заполнение базы синтетическими данными в профиле seed: при старте приложения
+// (filmorate.seed.on-startup=true) и по запросу POST /admin/seed. Генератор пишет прямо в базу,
+// поэтому с движком хранения в памяти заполнение недоступно
+@Slf4j
+@Service
+@Profile("seed")
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+public class DatasetSeeder implements ApplicationRunner {
+
+    private final DatasetGenerator generator;
+    private final List<LikeListener> likeListeners;
+    private final UserDbStorage userStorage;
+    private final FilmSearchIndex filmSearchIndex;
+    private final DatasetSpec defaultSpec;
+    private final boolean onStartup;
+
+    public DatasetSeeder(JdbcTemplate jdbcTemplate, List<LikeListener> likeListeners, UserDbStorage userStorage,
+                         FilmSearchIndex filmSearchIndex,
+                         @Value("${filmorate.seed.seed:42}") long seed,
+                         @Value("${filmorate.seed.users:10000}") int users,
+                         @Value("${filmorate.seed.films:10000}") int films,
+                         @Value("${filmorate.seed.likes:200000}") int likes,
+                         @Value("${filmorate.seed.friends-per-user:10}") int friendsPerUser,
+                         @Value("${filmorate.seed.zipf-exponent:1.0}") double zipfExponent,
+                         @Value("${filmorate.seed.on-startup:true}") boolean onStartup) {
+        this.generator = new DatasetGenerator(jdbcTemplate);
+        this.likeListeners = likeListeners;
+        this.userStorage = userStorage;
+        this.filmSearchIndex = filmSearchIndex;
+        this.defaultSpec = new DatasetSpec(seed, users, films, likes, friendsPerUser, zipfExponent);
+        this.onStartup = onStartup;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (onStartup) {
+            seed(defaultSpec);
+        }
+    }
+
+    public DatasetSpec getDefaultSpec() {
+        return defaultSpec;
+    }
+
+    // Данные пишутся мимо хранилищ, поэтому индексы в памяти после загрузки перестраиваются целиком
+    public synchronized DatasetStats seed(DatasetSpec spec) {
+        log.info("Заполнение базы синтетическими данными: {}", spec);
+        DatasetStats stats = generator.generate(spec);
+        likeListeners.forEach(LikeListener::rebuild);
+        userStorage.rebuildFriendsGraph();
+        filmSearchIndex.rebuild();
+        return stats;
+    }
+}
@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.generator;
+
+// Параметры синтетического набора данных. Одинаковые параметры и seed дают одинаковые данные
+public record DatasetSpec(long seed, int users, int films, int likes, int friendsPerUser, double zipfExponent) {
+}
@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.generator;
+
+public record DatasetStats(int users, int films, int filmGenres, int likes, int friends, long elapsedMillis) {
+
+    public long rowsPerSecond() {
+        long rows = (long) users + films + filmGenres + likes + friends;
+        return elapsedMillis == 0 ? rows : rows * 1000 / elapsedMillis;
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.generator;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+@RestController
+@RequiredArgsConstructor
+@Profile("seed")
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+@RequestMapping("/admin/seed")
+public class SeedController {
+    private final DatasetSeeder seeder;
+
+    // Не указанные параметры берутся из filmorate.seed.*
+    @PostMapping
+    public DatasetStats seed(@RequestParam(required = false) Long seed,
+                             @RequestParam(required = false) Integer users,
+                             @RequestParam(required = false) Integer films,
+                             @RequestParam(required = false) Integer likes,
+                             @RequestParam(required = false) Integer friendsPerUser,
+                             @RequestParam(required = false) Double zipfExponent) {
+        DatasetSpec defaults = seeder.getDefaultSpec();
+        DatasetSpec spec = new DatasetSpec(
+                seed == null ? defaults.seed() : seed,
+                users == null ? defaults.users() : users,
+                films == null ? defaults.films() : films,
+                likes == null ? defaults.likes() : likes,
+                friendsPerUser == null ? defaults.friendsPerUser() : friendsPerUser,
+                zipfExponent == null ? defaults.zipfExponent() : zipfExponent);
+        if (spec.users() < 0 || spec.films() < 0 || spec.likes() < 0 || spec.friendsPerUser() < 0
+                || spec.zipfExponent() <= 0) {
+            throw new ValidationException("Некорректные параметры генерации: " + spec);
+        }
+        return seeder.seed(spec);
+    }
+}
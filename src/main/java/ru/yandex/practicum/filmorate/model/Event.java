@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Event {
+    private long eventId;
+    private int userId;
+    private EventType eventType;
+    private Operation operation;
+    private int entityId;
+    private long timestamp;
+
+    public enum EventType {
+        LIKE, FRIEND
+    }
+
+    public enum Operation {
+        ADD, REMOVE
+    }
+}
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.*;
 import lombok.*;
 
@@ -40,6 +41,10 @@ public class Film {
     @NotNull(message = "Рейтинг MPA не может быть пустым.")
     private RatingMpa mpa;
 
+    // Версия строки в films, растёт при каждом изменении фильма и используется для ETag
+    @JsonIgnore
+    private long version;
+
     public void addGenre(Genre genre) {
         genres.add(genre);
     }
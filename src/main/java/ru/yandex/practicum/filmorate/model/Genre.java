@@ -7,10 +7,8 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import org.springframework.stereotype.Service;
 
 @Builder(toBuilder = true)
-@Service
 @Getter
 @Setter
 @NoArgsConstructor
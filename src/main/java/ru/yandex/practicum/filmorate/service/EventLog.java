@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Журнал событий для ленты пользователя. Запрос только кладёт событие в очередь, а она пишется пакетами
+// по таймеру или сразу, как наберётся batch-size. Если пакет не записался, события пишутся по одному;
+// при недоступной базе недописанный остаток ждёт следующего запуска и идёт первым, поэтому события
+// не теряются и не меняют порядок. Пропускаются только события, которые база отвергла сами по себе.
+// Переполненная очередь тормозит запрос: он сам пишет накопленное и ждёт места, а не обгоняет очередь.
+// Лайки приходят как LikeListener — уже после фиксации, в том числе из асинхронной очереди лайков
+@Slf4j
+@Component
+public class EventLog implements LikeListener {
+
+    private final EventStorage eventStorage;
+    private final BlockingQueue<Event> pending;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "event-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Object flushLock = new Object();
+    // Начало очереди, которое не удалось записать; меняется только под flushLock
+    private final List<Event> unwritten = new ArrayList<>();
+
+    public EventLog(EventStorage eventStorage, MeterRegistry meterRegistry,
+                    @Value("${filmorate.events.capacity:100000}") int capacity,
+                    @Value("${filmorate.events.batch-size:1000}") int batchSize,
+                    @Value("${filmorate.events.flush-interval:100ms}") Duration flushInterval) {
+        this.eventStorage = eventStorage;
+        this.pending = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        meterRegistry.gauge("filmorate.events.queue.size", pending, BlockingQueue::size);
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void append(int userId, Event.EventType eventType, Event.Operation operation, int entityId) {
+        Event event = Event.builder()
+                .userId(userId)
+                .eventType(eventType)
+                .operation(operation)
+                .entityId(entityId)
+                .timestamp(System.currentTimeMillis())
+                .build();
+        if (!pending.offer(event)) {
+            log.warn("Очередь событий переполнена, запрос ждёт её записи");
+            waitForRoom(event);
+            return;
+        }
+        if (pending.size() >= batchSize && !flusher.isShutdown()) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                // Остановка началась после проверки: очередь допишет сам shutdown
+                log.debug("Журнал событий останавливается, пакет будет записан при остановке");
+            }
+        }
+    }
+
+    // Событие встаёт в конец общей очереди, поэтому запись в обход уже накопленных событий невозможна.
+    // Пока база недоступна, flush сразу возвращается, и запрос ждёт следующей попытки
+    private void waitForRoom(Event event) {
+        try {
+            do {
+                flush();
+            } while (!pending.offer(event, flushInterval.toMillis(), TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Ожидание места в очереди событий прервано, событие {} не записано", event);
+        }
+    }
+
+    // События, ещё не записанные из очереди, в выдачу не попадают; обычно это доли секунды
+    public List<Event> getEvents(int userId, long afterId, int limit) {
+        return eventStorage.getEvents(userId, afterId, limit);
+    }
+
+    @Override
+    public void likeAdded(int filmId, int userId) {
+        append(userId, Event.EventType.LIKE, Event.Operation.ADD, filmId);
+    }
+
+    @Override
+    public void likeRemoved(int filmId, int userId) {
+        append(userId, Event.EventType.LIKE, Event.Operation.REMOVE, filmId);
+    }
+
+    // Журнал только дописывается: события удалённого фильма остаются в истории
+    @Override
+    public void filmRemoved(int filmId) {
+    }
+
+    @Override
+    public void rebuild() {
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+        synchronized (flushLock) {
+            int lost = unwritten.size() + pending.size();
+            if (lost > 0) {
+                log.error("Журнал событий остановлен, не записано событий: {}", lost);
+                return;
+            }
+        }
+        log.info("Журнал событий остановлен");
+    }
+
+    public void flush() {
+        synchronized (flushLock) {
+            while (true) {
+                if (unwritten.isEmpty() && pending.drainTo(unwritten, batchSize) == 0) {
+                    return;
+                }
+                int written = write(unwritten);
+                unwritten.subList(0, written).clear();
+                if (!unwritten.isEmpty()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Возвращает, сколько событий с начала пакета записано или пропущено; остальные нужно повторить
+    private int write(List<Event> batch) {
+        try {
+            eventStorage.addEvents(batch);
+            return batch.size();
+        } catch (RuntimeException e) {
+            log.warn("Не удалось записать пакет из {} событий, пишем по одному", batch.size(), e);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                eventStorage.addEvents(List.of(batch.get(i)));
+            } catch (DataIntegrityViolationException e) {
+                log.error("База отвергла событие {}, оно пропущено", batch.get(i), e);
+            } catch (RuntimeException e) {
+                log.warn("База недоступна, {} событий будут записаны при следующем запуске", batch.size() - i, e);
+                return i;
+            }
+        }
+        return batch.size();
+    }
+}
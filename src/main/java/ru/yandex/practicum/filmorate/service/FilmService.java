@@ -1,73 +1,201 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.SingleFlight;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeListener;
+import ru.yandex.practicum.filmorate.storage.like.PopularFilmsIndex;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 public class FilmService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final Map<String, FilmSearchIndex.Field> SEARCH_FIELDS = Map.of(
+            "title", FilmSearchIndex.Field.TITLE,
+            "description", FilmSearchIndex.Field.DESCRIPTION);
+
     private final FilmStorage filmStorage;
-    private final LikeDbStorage likeDbStorage;
+    private final LikeService likeService;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final List<LikeListener> likeListeners;
+    private final FilmSearchIndex filmSearchIndex;
+    private final GenreService genreService;
+    private final RatingMpaService ratingMpaService;
+    private final int streamPageSize;
+    // Одновременные запросы одного фильма, например при всплеске популярности, читают его из хранилища один раз
+    private final SingleFlight<Integer, Film> filmLoads;
 
     @Autowired
-    public FilmService(FilmStorage filmStorage, UserStorage userStorage, LikeDbStorage likeDbStorage) {
+    public FilmService(FilmStorage filmStorage, LikeService likeService, PopularFilmsIndex popularFilmsIndex,
+                       List<LikeListener> likeListeners, FilmSearchIndex filmSearchIndex,
+                       GenreService genreService, RatingMpaService ratingMpaService, MeterRegistry meterRegistry,
+                       @Value("${filmorate.stream.page-size:1000}") int streamPageSize) {
         this.filmStorage = filmStorage;
-        this.likeDbStorage = likeDbStorage;
+        this.likeService = likeService;
+        this.popularFilmsIndex = popularFilmsIndex;
+        this.likeListeners = likeListeners;
+        this.filmSearchIndex = filmSearchIndex;
+        this.genreService = genreService;
+        this.ratingMpaService = ratingMpaService;
+        // При нулевом размере страницы обход никогда не закончится: пустая страница равна размеру
+        if (streamPageSize <= 0 || streamPageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("filmorate.stream.page-size должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        this.streamPageSize = streamPageSize;
+        this.filmLoads = new SingleFlight<>("film", meterRegistry);
     }
 
+    // Фильм и его жанры пишутся в одной транзакции: без неё ошибка в жанрах оставила бы фильм без них
+    @Transactional
     public Film addFilm(Film film) {
         log.debug("Добавление фильма: {}", film);
-        return filmStorage.createFilm(film);
+        Film createdFilm = filmStorage.createFilm(film);
+        AfterCommit.run(() -> {
+            popularFilmsIndex.addFilm(createdFilm);
+            filmSearchIndex.addFilm(createdFilm);
+        });
+        return createdFilm;
+    }
+
+    // Пачка фильмов и пачка их жанров фиксируются вместе или не фиксируются вовсе
+    @Transactional
+    public List<Film> addFilms(List<Film> films) {
+        List<Film> createdFilms = filmStorage.createFilms(films);
+        AfterCommit.run(() -> {
+            for (Film film : createdFilms) {
+                popularFilmsIndex.addFilm(film);
+                filmSearchIndex.addFilm(film);
+            }
+        });
+        log.debug("Добавлено фильмов пакетом: {}", createdFilms.size());
+        return createdFilms;
+    }
+
+    public Collection<Film> getTopFilms(Integer count, Integer genreId, Integer year) {
+        return likeService.getPopular(count, genreId, year);
     }
 
-    public Collection<Film> getTopFilms(Integer count) {
-        return filmStorage.getMostPopularFilms(count);
+    // Список меняется при изменении состава выдачи, лайков и данных фильмов в ней и справочников жанров
+    // и рейтингов MPA; view — ключ представления (выбранные поля, компактный режим) из FilmView.key
+    public String getTopFilmsETag(int count, Integer genreId, Integer year, String view) {
+        return "popular-" + count + "-" + genreId + "-" + year + "-" + view
+                + "-" + Long.toHexString(popularFilmsIndex.getTopFingerprint(count, genreId, year))
+                + "-" + genreService.getGeneration() + "-" + ratingMpaService.getGeneration();
     }
 
+    // Существование фильма проверяет само хранилище по числу обновлённых строк, без отдельного запроса.
+    // Индексы обновляются после фиксации, чтобы не показать данные, которые ещё могут откатиться
+    @Transactional
     public Film updateFilm(Film film) {
-        if (filmStorage.getFilmById(film.getId()) == null) {
-            throw new NotFoundException("Фильм с ID " + film.getId() + " не найден");
-        }
-        return filmStorage.updateFilm(film);
+        Film updatedFilm = filmStorage.updateFilm(film);
+        AfterCommit.run(() -> {
+            popularFilmsIndex.updateFilm(updatedFilm);
+            filmSearchIndex.updateFilm(updatedFilm);
+        });
+        return updatedFilm;
+    }
+
+    // Версия фильма меняется при каждом обновлении; лайки в представление фильма не входят и версию не меняют
+    public String getFilmETag(Film film) {
+        return filmETag(film.getId(), film.getVersion());
+    }
+
+    // ETag по версии из индекса популярных в памяти, без чтения фильма; null, если фильма в индексе нет
+    public String getFilmETag(int filmId) {
+        Long version = popularFilmsIndex.getFilmVersion(filmId);
+        return version == null ? null : filmETag(filmId, version);
+    }
+
+    private String filmETag(int filmId, long version) {
+        return "film-" + filmId + "-" + version + "-" + genreService.getGeneration()
+                + "-" + ratingMpaService.getGeneration();
     }
 
     public Film getFilmById(int filmId) {
-        Film film = filmStorage.getFilmById(filmId);
+        Film film = filmLoads.load(filmId, () -> filmStorage.getFilmById(filmId));
         if (film == null) {
             throw new NotFoundException("Фильм с ID " + filmId + " не найден");
         }
         return film;
     }
 
+    // Как и при обновлении, фильм пропадает из индексов только после фиксации удаления
+    @Transactional
     public void removeFilm(int filmId) {
-        if (filmStorage.getFilmById(filmId) == null) {
+        if (!filmStorage.existsById(filmId)) {
             throw new NotFoundException("Фильм с ID " + filmId + " не найден");
         }
         filmStorage.removeFilm(filmId);
+        AfterCommit.run(() -> {
+            likeListeners.forEach(listener -> listener.filmRemoved(filmId));
+            filmSearchIndex.removeFilm(filmId);
+        });
+    }
+
+    // by — поля через запятую: title, description
+    public List<Film> searchFilms(String query, String by, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Параметр query не может быть пустым");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        Set<FilmSearchIndex.Field> fields = EnumSet.noneOf(FilmSearchIndex.Field.class);
+        for (String name : by.split(",")) {
+            FilmSearchIndex.Field field = SEARCH_FIELDS.get(name.trim().toLowerCase(Locale.ROOT));
+            if (field == null) {
+                throw new ValidationException("Неизвестное поле поиска: " + name);
+            }
+            fields.add(field);
+        }
+        return filmStorage.getFilmsByIds(filmSearchIndex.search(query, fields, limit));
     }
 
     public List<Film> getAllFilms() {
         return filmStorage.getAllFilms();
     }
 
+    public List<Film> getFilms(int afterId, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return filmStorage.getFilms(afterId, limit);
+    }
+
+    // Обходит все фильмы страницами по ключу, не держа весь каталог в памяти
+    public void forEachFilm(Consumer<Film> action) {
+        int afterId = 0;
+        List<Film> page;
+        do {
+            page = filmStorage.getFilms(afterId, streamPageSize);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == streamPageSize);
+    }
+
     public void addLike(int filmId, int userId) {
-        filmStorage.getFilmById(filmId);
-        likeDbStorage.addLike(filmId, userId);
+        likeService.addLike(filmId, userId);
         log.info("User {} liked film {}", userId, filmId);
     }
 
     public void deleteLike(int filmId, int userId) {
-        filmStorage.getFilmById(filmId);
-        likeDbStorage.deleteLike(filmId, userId);
+        likeService.deleteLike(filmId, userId);
         log.info("Пользователь {} отменил лайк фильма {}", userId, filmId);
     }
 }
\ No newline at end of file
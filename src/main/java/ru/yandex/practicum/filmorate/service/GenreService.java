@@ -27,4 +27,8 @@ public class GenreService {
     public List<Genre> getAllGenres() {
         return genreDbStorage.getAllGenres();
     }
-}
\ No newline at end of file
+
+    public long getGeneration() {
+        return genreDbStorage.getGeneration();
+    }
+}
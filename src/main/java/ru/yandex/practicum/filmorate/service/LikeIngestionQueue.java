@@ -0,0 +1,192 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.TooManyRequestsException;
+import ru.yandex.practicum.filmorate.storage.like.LikeListener;
+import ru.yandex.practicum.filmorate.storage.like.LikePair;
+import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Асинхронная запись лайков: операции копятся в ограниченной очереди, схлопываются по паре (фильм, пользователь)
+// и пишутся пакетами по размеру или по таймеру. Как и в EventLog, пакет с ошибкой пишется по одному,
+// пропускаются только лайки, которые база отвергла сама, а при недоступной базе остаток ждёт следующего запуска.
+// Включается filmorate.likes.async.enabled=true
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.likes.async.enabled", havingValue = "true")
+public class LikeIngestionQueue {
+
+    private final LikeStorage likeStorage;
+    private final List<LikeListener> likeListeners;
+    private final TransactionTemplate transactionTemplate;
+    private final int capacity;
+    private final int batchSize;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "like-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Для каждой пары хранится только последняя операция: true — лайк, false — отмена лайка
+    private final LinkedHashMap<LikePair, Boolean> pending = new LinkedHashMap<>();
+    private final Object flushLock = new Object();
+    // Начало очереди, которое не удалось записать; меняется только под flushLock и пишется раньше pending
+    private final LinkedHashMap<LikePair, Boolean> unwritten = new LinkedHashMap<>();
+    private boolean accepting = true;
+
+    public LikeIngestionQueue(LikeStorage likeStorage, List<LikeListener> likeListeners,
+                              TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                              @Value("${filmorate.likes.async.capacity:100000}") int capacity,
+                              @Value("${filmorate.likes.async.batch-size:1000}") int batchSize,
+                              @Value("${filmorate.likes.async.flush-interval:200ms}") Duration flushInterval) {
+        this.likeStorage = likeStorage;
+        this.likeListeners = likeListeners;
+        this.transactionTemplate = transactionTemplate;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        meterRegistry.gauge("filmorate.likes.queue.size", this, LikeIngestionQueue::size);
+        flusher.scheduleWithFixedDelay(this::flushAll, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void addLike(int filmId, int userId) {
+        submit(new LikePair(filmId, userId), true);
+    }
+
+    public void deleteLike(int filmId, int userId) {
+        submit(new LikePair(filmId, userId), false);
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        synchronized (this) {
+            accepting = false;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flushAll();
+        synchronized (flushLock) {
+            if (!unwritten.isEmpty()) {
+                log.error("Очередь лайков остановлена, не записано лайков: {}", unwritten.size());
+                return;
+            }
+        }
+        log.info("Очередь лайков остановлена");
+    }
+
+    // Повторная операция над той же парой заменяет предыдущую: лайк и его отмена схлопываются в одну запись,
+    // итоговое состояние в базе совпадает с последним запросом пользователя
+    private void submit(LikePair like, boolean liked) {
+        boolean batchReady;
+        synchronized (this) {
+            if (!accepting) {
+                throw new TooManyRequestsException("Сервис останавливается, повторите запрос позже");
+            }
+            if (!pending.containsKey(like) && pending.size() >= capacity) {
+                throw new TooManyRequestsException("Очередь лайков переполнена, повторите запрос позже");
+            }
+            pending.put(like, liked);
+            batchReady = pending.size() >= batchSize;
+        }
+        if (batchReady) {
+            try {
+                flusher.execute(this::flushAll);
+            } catch (RejectedExecutionException e) {
+                // Остановка началась после проверки accepting: пакет допишет сам shutdown
+                log.debug("Очередь лайков останавливается, пакет будет записан при остановке");
+            }
+        }
+    }
+
+    private void flushAll() {
+        synchronized (flushLock) {
+            while (true) {
+                if (unwritten.isEmpty()) {
+                    unwritten.putAll(takeBatch());
+                    if (unwritten.isEmpty()) {
+                        return;
+                    }
+                }
+                writeBatch(unwritten);
+                if (!unwritten.isEmpty()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Убирает из пакета записанные и отвергнутые базой лайки; остальные остаются для следующего запуска
+    private void writeBatch(Map<LikePair, Boolean> batch) {
+        try {
+            write(batch);
+            batch.clear();
+            return;
+        } catch (RuntimeException e) {
+            // Одна ошибочная запись (например, фильм уже удалён) не должна терять весь пакет
+            log.warn("Не удалось записать пакет из {} лайков, пишем по одному", batch.size(), e);
+        }
+        Iterator<Map.Entry<LikePair, Boolean>> iterator = batch.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<LikePair, Boolean> entry = iterator.next();
+            LikePair like = entry.getKey();
+            try {
+                write(Map.of(like, entry.getValue()));
+            } catch (DataIntegrityViolationException e) {
+                log.error("База отвергла лайк пользователя {} фильму {}, он пропущен", like.userId(), like.filmId(), e);
+            } catch (RuntimeException e) {
+                log.warn("База недоступна, {} лайков будут записаны при следующем запуске", batch.size(), e);
+                return;
+            }
+            iterator.remove();
+        }
+    }
+
+    private synchronized Map<LikePair, Boolean> takeBatch() {
+        Map<LikePair, Boolean> batch = new LinkedHashMap<>();
+        Iterator<Map.Entry<LikePair, Boolean>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext() && batch.size() < batchSize) {
+            Map.Entry<LikePair, Boolean> entry = iterator.next();
+            batch.put(entry.getKey(), entry.getValue());
+            iterator.remove();
+        }
+        return batch;
+    }
+
+    private void write(Map<LikePair, Boolean> batch) {
+        List<LikePair> likes = new ArrayList<>();
+        List<LikePair> unlikes = new ArrayList<>();
+        batch.forEach((like, liked) -> (liked ? likes : unlikes).add(like));
+
+        List<List<LikePair>> changed = transactionTemplate.execute(status ->
+                List.of(likeStorage.addLikes(likes), likeStorage.deleteLikes(unlikes)));
+        if (changed == null) {
+            return;
+        }
+        for (LikeListener listener : likeListeners) {
+            changed.get(0).forEach(like -> listener.likeAdded(like.filmId(), like.userId()));
+            changed.get(1).forEach(like -> listener.likeRemoved(like.filmId(), like.userId()));
+        }
+        log.debug("Записан пакет лайков: добавлено {}, удалено {}", changed.get(0).size(), changed.get(1).size());
+    }
+}
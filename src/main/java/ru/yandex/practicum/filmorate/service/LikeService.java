@@ -1,32 +1,53 @@
 package ru.yandex.practicum.filmorate.service;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.SingleFlight;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeListener;
 import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
-import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
-import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.like.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class LikeService {
 
     private final LikeStorage likeStorage;
-    private final FilmDbStorage filmStorage;
-    private final UserDbStorage userStorage;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final List<LikeListener> likeListeners;
+    private final Optional<LikeIngestionQueue> likeIngestionQueue;
+    private final SingleFlight<PopularQuery, List<Film>> popularLoads;
 
+    public LikeService(LikeStorage likeStorage, FilmStorage filmStorage, UserStorage userStorage,
+                       PopularFilmsIndex popularFilmsIndex, List<LikeListener> likeListeners,
+                       Optional<LikeIngestionQueue> likeIngestionQueue, MeterRegistry meterRegistry) {
+        this.likeStorage = likeStorage;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.popularFilmsIndex = popularFilmsIndex;
+        this.likeListeners = likeListeners;
+        this.likeIngestionQueue = likeIngestionQueue;
+        this.popularLoads = new SingleFlight<>("popular", meterRegistry);
+    }
+
+    @Transactional
     public void addLike(int filmId, int userId) {
         log.debug("Пользователь с ID {} ставит лайк фильму с ID {}", userId, filmId);
 
-        Film film = filmStorage.getFilmById(filmId);
-        if (film == null) {
+        if (!filmStorage.existsById(filmId)) {
             throw new NotFoundException("Фильм с ID " + filmId + " не найден");
         }
 
@@ -34,14 +55,20 @@ public class LikeService {
         if (user == null) {
             throw new NotFoundException("Пользователь с ID " + userId + " не найден");
         }
-        likeStorage.addLike(filmId, userId);
+        if (likeIngestionQueue.isPresent()) {
+            likeIngestionQueue.get().addLike(filmId, userId);
+            return;
+        }
+        if (likeStorage.addLike(filmId, userId)) {
+            AfterCommit.run(() -> likeListeners.forEach(listener -> listener.likeAdded(filmId, userId)));
+        }
     }
 
+    @Transactional
     public void deleteLike(int filmId, int userId) {
         log.debug("Пользователь с ID {} ставит лайк фильму с ID {}", userId, filmId);
 
-        Film film = filmStorage.getFilmById(filmId);
-        if (film == null) {
+        if (!filmStorage.existsById(filmId)) {
             throw new NotFoundException("Фильм с ID " + filmId + " не найден");
         }
 
@@ -50,20 +77,25 @@ public class LikeService {
             throw new NotFoundException("Пользователь с ID " + userId + " не найден");
         }
 
-        likeStorage.deleteLike(filmId, userId);
+        if (likeIngestionQueue.isPresent()) {
+            likeIngestionQueue.get().deleteLike(filmId, userId);
+            return;
+        }
+        if (likeStorage.deleteLike(filmId, userId)) {
+            AfterCommit.run(() -> likeListeners.forEach(listener -> listener.likeRemoved(filmId, userId)));
+        }
     }
 
-    public List<Film> getPopular(Integer count) {
+    public List<Film> getPopular(Integer count, Integer genreId, Integer year) {
         log.debug("Запрос на получение популярных фильмов с count: {}", count);
-        try {
-            List<Film> popularFilms = likeStorage.getPopular(count);
-            if (popularFilms == null) {
-                popularFilms = new ArrayList<>();
-            }
-            return popularFilms;
-        } catch (Exception e) {
-            log.error("Ошибка при получении популярных фильмов", e);
-            return new ArrayList<>();
+        if (count == null || count <= 0) {
+            throw new ValidationException("Параметр count должен быть положительным числом");
         }
+        // Одинаковые одновременные запросы списка получают один и тот же результат одной загрузки
+        return popularLoads.load(new PopularQuery(count, genreId, year),
+                () -> filmStorage.getFilmsByIds(popularFilmsIndex.getTopFilmIds(count, genreId, year)));
+    }
+
+    private record PopularQuery(int count, Integer genreId, Integer year) {
     }
-}
\ No newline at end of file
+}
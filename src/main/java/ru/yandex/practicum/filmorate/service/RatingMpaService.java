@@ -27,4 +27,8 @@ public class RatingMpaService {
     public List<RatingMpa> getRatingsMpa() {
         return ratingMpaDbStorage.getRatingsMpa();
     }
-}
\ No newline at end of file
+
+    public long getGeneration() {
+        return ratingMpaDbStorage.getGeneration();
+    }
+}
@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.like.RecommendationIndex;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecommendationService {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    private final RecommendationIndex recommendationIndex;
+
+    public List<Film> getRecommendations(int userId, int limit) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_LIMIT);
+        }
+        userStorage.getUserById(userId);
+        List<Integer> filmIds = recommendationIndex.recommend(userId, limit);
+        log.debug("Рекомендации для пользователя {}: {}", userId, filmIds);
+        return filmStorage.getFilmsByIds(filmIds);
+    }
+}
@@ -2,21 +2,38 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class UserService {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final UserStorage userStorage;
+    private final EventLog eventLog;
+    private final int streamPageSize;
 
     @Autowired
-    public UserService(UserStorage userStorage) {
+    public UserService(UserStorage userStorage, EventLog eventLog,
+                       @Value("${filmorate.stream.page-size:1000}") int streamPageSize) {
         this.userStorage = userStorage;
+        this.eventLog = eventLog;
+        // При нулевом размере страницы обход никогда не закончится: пустая страница равна размеру
+        if (streamPageSize <= 0 || streamPageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("filmorate.stream.page-size должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        this.streamPageSize = streamPageSize;
     }
 
     public User createUser(User user) {
@@ -24,6 +41,12 @@ public class UserService {
         return userStorage.createUser(user);
     }
 
+    @Transactional
+    public List<User> createUsers(List<User> users) {
+        log.debug("Добавление пользователей пакетом: {}", users.size());
+        return userStorage.createUsers(users);
+    }
+
     public User updateUser(User user) {
         return userStorage.updateUser(user);
     }
@@ -32,16 +55,44 @@ public class UserService {
         return userStorage.getAllUsers();
     }
 
+    public List<User> getUsers(int afterId, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return userStorage.getUsers(afterId, limit);
+    }
+
+    // Обходит всех пользователей страницами по ключу, не держа всю таблицу в памяти
+    public void forEachUser(Consumer<User> action) {
+        int afterId = 0;
+        List<User> page;
+        do {
+            page = userStorage.getUsers(afterId, streamPageSize);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == streamPageSize);
+    }
+
+    // Событие пишется только при настоящем изменении дружбы и только после фиксации:
+    // повторное добавление или откат транзакции в ленту не попадают
+    @Transactional
     public void addFriend(Integer userId, Integer friendId) {
         checkUser(userId, friendId);
-        userStorage.addFriend(userId, friendId);
+        if (userStorage.addFriend(userId, friendId)) {
+            AfterCommit.run(() -> eventLog.append(userId, Event.EventType.FRIEND, Event.Operation.ADD, friendId));
+        }
 
         log.info("Друг успешно добавлен");
     }
 
+    @Transactional
     public void removeFriend(Integer userId, Integer friendId) {
         checkUser(userId, friendId);
-        userStorage.removeFriend(userId, friendId);
+        if (userStorage.removeFriend(userId, friendId)) {
+            AfterCommit.run(() -> eventLog.append(userId, Event.EventType.FRIEND, Event.Operation.REMOVE, friendId));
+        }
         log.info("Друг успешно удален");
     }
 
@@ -59,6 +110,23 @@ public class UserService {
         return result;
     }
 
+    public List<User> getFriendSuggestions(Integer userId, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        checkUser(userId, userId);
+        return userStorage.getFriendSuggestions(userId, limit);
+    }
+
+    // Лента читается по ключу: следующая страница начинается после eventId последнего события
+    public List<Event> getFeed(Integer userId, long afterId, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        checkUser(userId, userId);
+        return eventLog.getEvents(userId, afterId, limit);
+    }
+
     private void checkUser(Integer userId, Integer friendId) {
         userStorage.getUserById(userId);
         userStorage.getUserById(friendId);
@@ -5,13 +5,16 @@ import java.util.List;
 
 public interface FriendsStorage {
 
-    void addFriend(int userID, int friendId);
+    // Возвращают, изменилась ли дружба: повторное добавление и удаление отсутствующей ничего не меняют
+    boolean addFriend(int userID, int friendId);
 
-    void removeFriend(int userID, int friendId);
+    boolean removeFriend(int userID, int friendId);
 
     List<User> getFriends(int userId);
 
     List<User> getCommonFriends(int friend1, int friend2);
 
+    List<User> getFriendSuggestions(int userId, int limit);
+
     boolean isFriend(int userId, int friendId);
 }
\ No newline at end of file
@@ -1,38 +1,127 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.RatingMpa;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Repository
 public class RatingMpaDbStorage {
 
     private final JdbcTemplate jdbcTemplate;
 
-    public RatingMpaDbStorage(JdbcTemplate jdbcTemplate) {
+    // Справочник рейтингов держим в памяти массивом, индексированным по rating_id
+    private volatile RatingMpa[] ratingsById;
+    private final List<Runnable> invalidationListeners = new CopyOnWriteArrayList<>();
+    // Номер загрузки справочника, из него строится ETag ответов со справочником
+    private final AtomicLong generation = new AtomicLong();
+    // Перезагрузки из-за неизвестного рейтинга, начатые на одном поколении справочника, выполняются один раз
+    private final SingleFlight<Long, Long> missReloads;
+
+    public RatingMpaDbStorage(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
         this.jdbcTemplate = jdbcTemplate;
+        this.missReloads = new SingleFlight<>("ratings-mpa", meterRegistry);
+    }
+
+    // Поколение меняется, только если справочник действительно изменился, иначе каждый промах
+    // сбрасывал бы ETag ответов со справочником
+    @PostConstruct
+    private synchronized void reload() {
+        RatingMpa[] loaded = loadRatingsMpa();
+        if (!sameRatings(ratingsById, loaded)) {
+            ratingsById = loaded;
+            generation.incrementAndGet();
+        }
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    // Перечитывает справочник и сообщает об этом зависимым кэшам
+    public void invalidateCache() {
+        reload();
+        invalidationListeners.forEach(Runnable::run);
+    }
+
+    public void addInvalidationListener(Runnable listener) {
+        invalidationListeners.add(listener);
     }
 
     public RatingMpa getRatingMpaById(int ratingId) {
-        String sqlQuery = "SELECT * FROM rating_mpa WHERE rating_id = ?";
-        SqlRowSet srs = jdbcTemplate.queryForRowSet(sqlQuery, ratingId);
-        if (srs.next()) {
-            return new RatingMpa(ratingId, srs.getString("rating_name"));
+        RatingMpa ratingMpa = getCachedRatingMpa(ratingId);
+        if (ratingMpa != null) {
+            return ratingMpa;
         }
         throw new NotFoundException("Рейтинг не найден: id = " + ratingId);
     }
 
     public List<RatingMpa> getRatingsMpa() {
         List<RatingMpa> ratingsMpa = new ArrayList<>();
+        for (RatingMpa ratingMpa : ratingsById) {
+            if (ratingMpa != null) {
+                ratingsMpa.add(ratingMpa);
+            }
+        }
+        return ratingsMpa;
+    }
+
+    // Используется при сборке фильмов: при промахе справочник перечитывается один раз
+    public RatingMpa findRatingMpa(int ratingId) {
+        RatingMpa ratingMpa = getCachedRatingMpa(ratingId);
+        if (ratingMpa == null) {
+            missReloads.load(generation.get(), () -> {
+                reload();
+                return generation.get();
+            });
+            ratingMpa = getCachedRatingMpa(ratingId);
+        }
+        return ratingMpa != null ? ratingMpa : new RatingMpa(ratingId, null);
+    }
+
+    private RatingMpa getCachedRatingMpa(int ratingId) {
+        RatingMpa[] ratings = ratingsById;
+        return ratingId > 0 && ratingId < ratings.length ? ratings[ratingId] : null;
+    }
+
+    private static boolean sameRatings(RatingMpa[] current, RatingMpa[] loaded) {
+        if (current == null || current.length != loaded.length) {
+            return false;
+        }
+        for (int i = 0; i < loaded.length; i++) {
+            if ((current[i] == null) != (loaded[i] == null)) {
+                return false;
+            }
+            if (current[i] != null && !Objects.equals(current[i].getName(), loaded[i].getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private RatingMpa[] loadRatingsMpa() {
+        List<RatingMpa> ratingsMpa = new ArrayList<>();
+        int maxId = 0;
         String sqlQuery = "SELECT * FROM rating_mpa";
         SqlRowSet srs = jdbcTemplate.queryForRowSet(sqlQuery);
         while (srs.next()) {
-            ratingsMpa.add(new RatingMpa(srs.getInt("rating_id"), srs.getString("rating_name")));
+            RatingMpa ratingMpa = new RatingMpa(srs.getInt("rating_id"), srs.getString("rating_name"));
+            ratingsMpa.add(ratingMpa);
+            maxId = Math.max(maxId, ratingMpa.getId());
         }
-        return ratingsMpa;
+        RatingMpa[] result = new RatingMpa[maxId + 1];
+        for (RatingMpa ratingMpa : ratingsMpa) {
+            result[ratingMpa.getId()] = ratingMpa;
+        }
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Объединяет одновременные загрузки одного ключа: первый вызов выполняет загрузку, а вызовы, пришедшие
+// до её окончания, ждут и получают тот же результат или то же исключение. Результат не кэшируется.
+// Счётчик filmorate.singleflight.calls с тегом outcome показывает, сколько вызовов было схлопнуто;
+// тег name — вид ключа, сами ключи в теги не попадают, чтобы не раздувать число метрик
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter loaded;
+    private final Counter collapsed;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.loaded = Counter.builder("filmorate.singleflight.calls")
+                .tags("name", name, "outcome", "loaded")
+                .register(meterRegistry);
+        this.collapsed = Counter.builder("filmorate.singleflight.calls")
+                .tags("name", name, "outcome", "collapsed")
+                .register(meterRegistry);
+        meterRegistry.gauge("filmorate.singleflight.in-flight", Tags.of("name", name), inFlight, Map::size);
+    }
+
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, own);
+        if (running != null) {
+            collapsed.increment();
+            return await(running);
+        }
+        loaded.increment();
+        try {
+            V value = loader.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+// Операции над отсортированными массивами id, которые после публикации не изменяются:
+// вставка и удаление возвращают новый массив, а если менять нечего — тот же самый
+public final class SortedIntArrays {
+
+    public static final int[] EMPTY = new int[0];
+
+    private SortedIntArrays() {
+    }
+
+    public static int[] insert(int[] values, int value) {
+        int[] current = values == null ? EMPTY : values;
+        int position = Arrays.binarySearch(current, value);
+        if (position >= 0) {
+            return current;
+        }
+        int insertAt = -position - 1;
+        int[] updated = new int[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, insertAt);
+        updated[insertAt] = value;
+        System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+        return updated;
+    }
+
+    // Возвращает null вместо пустого массива, чтобы compute в ConcurrentHashMap удалял ключ
+    public static int[] remove(int[] values, int value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position < 0) {
+            return values;
+        }
+        if (values.length == 1) {
+            return null;
+        }
+        int[] updated = new int[values.length - 1];
+        System.arraycopy(values, 0, updated, 0, position);
+        System.arraycopy(values, position + 1, updated, position, values.length - position - 1);
+        return updated;
+    }
+
+    public static boolean contains(int[] values, int value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    public static int[] union(int[] first, int[] second) {
+        if (first.length == 0) {
+            return second;
+        }
+        if (second.length == 0) {
+            return first;
+        }
+        int[] result = new int[first.length + second.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                result[size++] = first[i++];
+            } else if (first[i] > second[j]) {
+                result[size++] = second[j++];
+            } else {
+                result[size++] = first[i++];
+                j++;
+            }
+        }
+        while (i < first.length) {
+            result[size++] = first[i++];
+        }
+        while (j < second.length) {
+            result[size++] = second[j++];
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // Пересечение двух отсортированных массивов за один проход
+    public static int[] intersect(int[] first, int[] second) {
+        int[] result = new int[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
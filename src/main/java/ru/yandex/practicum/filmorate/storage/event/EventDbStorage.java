@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.storage.event;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+@Repository
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "jdbc", matchIfMissing = true)
+@RequiredArgsConstructor
+public class EventDbStorage implements EventStorage {
+
+    private static final String INSERT_EVENT_QUERY = "INSERT INTO events "
+            + "(user_id, event_type, operation, entity_id, event_timestamp) VALUES (?, ?, ?, ?, ?)";
+    // Проверяется на использование индекса в QueryPlanTests
+    public static final String GET_EVENTS_QUERY = "SELECT * FROM events "
+            + "WHERE user_id = ? AND event_id > ? ORDER BY event_id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Пакет пишется целиком или не пишется вовсе, чтобы при повторе по одному события не задвоились
+    @Override
+    @Transactional
+    public void addEvents(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT_QUERY, new BatchPreparedStatementSetter() {
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Event event = events.get(i);
+                ps.setInt(1, event.getUserId());
+                ps.setString(2, event.getEventType().name());
+                ps.setString(3, event.getOperation().name());
+                ps.setInt(4, event.getEntityId());
+                ps.setLong(5, event.getTimestamp());
+            }
+
+            public int getBatchSize() {
+                return events.size();
+            }
+        });
+    }
+
+    @Override
+    public List<Event> getEvents(int userId, long afterId, int limit) {
+        return jdbcTemplate.query(GET_EVENTS_QUERY, EventDbStorage::mapEvent, userId, afterId, limit);
+    }
+
+    private static Event mapEvent(ResultSet rs, int rowNum) throws SQLException {
+        return Event.builder()
+                .eventId(rs.getLong("event_id"))
+                .userId(rs.getInt("user_id"))
+                .eventType(Event.EventType.valueOf(rs.getString("event_type")))
+                .operation(Event.Operation.valueOf(rs.getString("operation")))
+                .entityId(rs.getInt("entity_id"))
+                .timestamp(rs.getLong("event_timestamp"))
+                .build();
+    }
+}
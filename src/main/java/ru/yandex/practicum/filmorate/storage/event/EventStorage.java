@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.storage.event;
+
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.util.List;
+
+public interface EventStorage {
+    void addEvents(List<Event> events);
+
+    // События пользователя с event_id больше afterId в порядке возрастания id
+    List<Event> getEvents(int userId, long afterId, int limit);
+}
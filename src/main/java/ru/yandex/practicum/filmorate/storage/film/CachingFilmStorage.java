@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.RatingMpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Кэш фильмов по id поверх FilmDbStorage. Записи сбрасываются при изменении и удалении фильма,
+// а также при перезагрузке справочников жанров и рейтингов. Отключается filmorate.cache.films.enabled=false
+// и не нужен движку хранения в памяти
+@Primary
+@Component
+@ConditionalOnExpression("${filmorate.cache.films.enabled:true} and '${filmorate.storage.engine:jdbc}' == 'jdbc'")
+public class CachingFilmStorage implements FilmStorage {
+
+    private final FilmDbStorage filmStorage;
+    private final Cache<Integer, Film> films;
+
+    public CachingFilmStorage(FilmDbStorage filmStorage, GenreDbStorage genreStorage,
+                              RatingMpaDbStorage ratingMpaStorage, MeterRegistry meterRegistry,
+                              @Value("${filmorate.cache.films.max-weight:67108864}") long maxWeight,
+                              @Value("${filmorate.cache.films.ttl:10m}") Duration ttl) {
+        this.filmStorage = filmStorage;
+        this.films = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Integer filmId, Film film) -> weigh(film))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, films, "films");
+        genreStorage.addInvalidationListener(films::invalidateAll);
+        ratingMpaStorage.addInvalidationListener(films::invalidateAll);
+    }
+
+    @Override
+    public Film createFilm(Film film) {
+        return filmStorage.createFilm(film);
+    }
+
+    @Override
+    public List<Film> createFilms(List<Film> films) {
+        return filmStorage.createFilms(films);
+    }
+
+    // Запись сбрасывается после фиксации: до неё параллельное чтение положило бы в кэш старую строку
+    @Override
+    public Film updateFilm(Film film) {
+        Film updated = filmStorage.updateFilm(film);
+        AfterCommit.run(() -> films.invalidate(film.getId()));
+        return updated;
+    }
+
+    @Override
+    public Film getFilmById(int id) {
+        return films.get(id, filmStorage::getFilmById);
+    }
+
+    @Override
+    public boolean existsById(int id) {
+        return films.getIfPresent(id) != null || filmStorage.existsById(id);
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return filmStorage.getAllFilms();
+    }
+
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        return filmStorage.getFilms(afterId, limit);
+    }
+
+    // Недостающие в кэше фильмы догружаются одним запросом
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        Map<Integer, Film> found = films.getAll(filmIds, missingIds -> {
+            Map<Integer, Film> loaded = new HashMap<>();
+            for (Film film : filmStorage.getFilmsByIds(new ArrayList<>(missingIds))) {
+                loaded.put(film.getId(), film);
+            }
+            return loaded;
+        });
+        List<Film> result = new ArrayList<>(found.size());
+        for (Integer filmId : filmIds) {
+            Film film = found.get(filmId);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void removeFilm(int id) {
+        filmStorage.removeFilm(id);
+        AfterCommit.run(() -> films.invalidate(id));
+    }
+
+    @Override
+    public List<Film> getMostPopularFilms(int count) {
+        return filmStorage.getMostPopularFilms(count);
+    }
+
+    @Override
+    public Map<Integer, FilmFacets> getFilmFacets() {
+        return filmStorage.getFilmFacets();
+    }
+
+    public CacheStats getStats() {
+        return films.stats();
+    }
+
+    // Вес записи примерно соответствует её размеру в байтах
+    private static int weigh(Film film) {
+        int weight = 128;
+        weight += 2 * (film.getName() == null ? 0 : film.getName().length());
+        weight += 2 * (film.getDescription() == null ? 0 : film.getDescription().length());
+        weight += 32 * (film.getGenres() == null ? 0 : film.getGenres().size());
+        return weight;
+    }
+}
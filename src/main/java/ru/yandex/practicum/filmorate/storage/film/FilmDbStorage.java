@@ -1,114 +1,213 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.RatingMpa;
+import ru.yandex.practicum.filmorate.storage.RatingMpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Repository
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "jdbc", matchIfMissing = true)
 public class FilmDbStorage implements FilmStorage {
 
-    private final JdbcTemplate jdbcTemplate;
+    // Названия жанров и рейтингов берутся из справочников в памяти, поэтому join с genres и rating_mpa не нужен
+    private static final String SELECT_FILMS = "SELECT films.film_id, films.film_name, films.description, "
+            + "films.duration, films.release_date, films.rating_id, films.version "
+            + "FROM films ";
+    // Открытые запросы по ключу проверяются на использование индексов в QueryPlanTests
+    public static final String SELECT_FILM_BY_ID = "SELECT * FROM films WHERE film_id = ?";
+    public static final String FILM_EXISTS = "SELECT EXISTS (SELECT 1 FROM films WHERE film_id = ?)";
+    public static final String SELECT_FILMS_PAGE = SELECT_FILMS
+            + "WHERE films.film_id > ? "
+            + "ORDER BY films.film_id "
+            + "LIMIT ?";
+    // H2 сравнивает с массивом-параметром по индексу, поэтому текст запроса не зависит от числа id
+    public static final String SELECT_FILMS_BY_IDS = SELECT_FILMS
+            + "WHERE films.film_id = ANY(:filmIds)";
+    public static final String SELECT_MOST_POPULAR_FILMS = SELECT_FILMS
+            + "ORDER BY films.like_count DESC, films.film_id "
+            + "LIMIT ?";
+    public static final String SELECT_GENRE_IDS_BY_FILM = "SELECT genre_id FROM film_genres WHERE film_id = ?";
+    public static final String SELECT_GENRES_BY_FILM_IDS = "SELECT film_id, genre_id FROM film_genres "
+            + "WHERE film_id = ANY(:filmIds)";
+    private static final String INSERT_FILM = "INSERT INTO films "
+            + "(film_name, description, duration, release_date, rating_id) VALUES (?, ?, ?, ?, ?)";
+    // Обновление сразу возвращает новую версию строки; пустой результат означает, что фильма нет
+    public static final String UPDATE_FILM = "SELECT version FROM FINAL TABLE (UPDATE films "
+            + "SET film_name = ?, description = ?, duration = ?, release_date = ?, rating_id = ?, "
+            + "version = version + 1 WHERE film_id = ?)";
+    private static final String INSERT_FILM_GENRE = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+    public static final String DELETE_FILM_GENRE = "DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?";
 
-    public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    // SimpleJdbcInsert потокобезопасен и читает метаданные таблицы один раз, при первой вставке
+    private final SimpleJdbcInsert filmInsert;
+    private final GenreDbStorage genreStorage;
+    private final RatingMpaDbStorage ratingMpaStorage;
+    private final int genreBatchSize;
+
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, GenreDbStorage genreStorage, RatingMpaDbStorage ratingMpaStorage,
+                         @Value("${filmorate.storage.genre-batch-size:500}") int genreBatchSize) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.filmInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("films")
+                .usingColumns("film_name", "description", "duration", "release_date", "rating_id")
+                .usingGeneratedKeyColumns("film_id");
+        this.genreStorage = genreStorage;
+        this.ratingMpaStorage = ratingMpaStorage;
+        this.genreBatchSize = genreBatchSize;
     }
 
     @Override
     public List<Film> getAllFilms() {
-        String sqlQuery = "SELECT films.film_id, films.film_name, films.description, films.duration, "
-                + "films.release_date, films.rating_id, rating_mpa.rating_name "
-                + "FROM films "
-                + "JOIN rating_mpa ON films.rating_id = rating_mpa.rating_id";
-
-        // Выполняем запрос и собираем фильмы
-        return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> {
-            int filmId = rs.getInt("film_id");
-            String name = rs.getString("film_name");
-            String description = rs.getString("description");
-            Long duration = rs.getLong("duration");
-
-            LocalDate releaseDate = rs.getTimestamp("release_date") != null
-                    ? rs.getTimestamp("release_date").toLocalDateTime().toLocalDate()
-                    : null;
-
-            int mpaId = rs.getInt("rating_id");
-            String mpaName = rs.getString("rating_name");
-            RatingMpa mpa = new RatingMpa(mpaId, mpaName);
+        // Сначала собираем фильмы без жанров, затем догружаем жанры пачками
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS, this::mapFilmWithoutGenres);
+        return addGenreForList(films);
+    }
 
-            Set<Genre> genres = getGenres(filmId);
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS_PAGE, this::mapFilmWithoutGenres, afterId, limit);
+        return addGenreForList(films);
+    }
 
-            return buildFilm(filmId, name, description, duration, releaseDate, mpa, genres);
-        });
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("filmIds", filmIds.toArray(new Integer[0]));
+        Map<Integer, Film> filmsTable = new HashMap<>();
+        for (Film film : namedJdbcTemplate.query(SELECT_FILMS_BY_IDS, params, this::mapFilmWithoutGenres)) {
+            filmsTable.put(film.getId(), film);
+        }
+        // Возвращаем фильмы в том же порядке, в котором были переданы идентификаторы
+        List<Film> films = new ArrayList<>(filmsTable.size());
+        for (Integer filmId : filmIds) {
+            Film film = filmsTable.get(filmId);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return addGenreForList(films);
     }
 
     @Override
     public Film createFilm(Film film) {
-        Map<String, Object> keys = new SimpleJdbcInsert(this.jdbcTemplate)
-                .withTableName("films")
-                .usingColumns("film_name", "description", "duration", "release_date", "rating_id")
-                .usingGeneratedKeyColumns("film_id")
-                .executeAndReturnKeyHolder(Map.of("film_name", film.getName(),
-                        "description", film.getDescription(),
-                        "duration", film.getDuration(),
-                        "release_date", java.sql.Date.valueOf(film.getReleaseDate()),
-                        "rating_id", film.getMpa().getId()))
-                .getKeys();
-        film.setId((Integer) keys.get("film_id"));
-        addGenre((Integer) keys.get("film_id"), film.getGenres());
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("film_name", film.getName())
+                .addValue("description", film.getDescription())
+                .addValue("duration", film.getDuration())
+                .addValue("release_date", film.getReleaseDate())
+                .addValue("rating_id", film.getMpa().getId());
+        film.setId(filmInsert.executeAndReturnKey(params).intValue());
+        insertGenres(List.of(film));
         return film;
     }
 
+    @Override
+    public List<Film> createFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        PreparedStatementCreatorFactory factory = new PreparedStatementCreatorFactory(INSERT_FILM);
+        factory.setGeneratedKeysColumnNames("film_id");
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(factory.newPreparedStatementCreator(List.of()), new BatchPreparedStatementSetter() {
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Film film = films.get(i);
+                ps.setString(1, film.getName());
+                ps.setString(2, film.getDescription());
+                ps.setObject(3, film.getDuration());
+                ps.setObject(4, film.getReleaseDate());
+                ps.setInt(5, film.getMpa().getId());
+            }
+
+            public int getBatchSize() {
+                return films.size();
+            }
+        }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < films.size(); i++) {
+            films.get(i).setId(((Number) keys.get(i).get("film_id")).intValue());
+        }
+        insertGenres(films);
+        return films;
+    }
+
+    // Два запроса, если жанры не менялись: обновление строки и чтение текущих жанров. Из film_genres
+    // удаляются и добавляются только изменившиеся жанры, а фильм собирается из переданного без перечитывания.
+    // Вызывать внутри транзакции сервиса, чтобы строка и жанры менялись вместе
     @Override
     public Film updateFilm(Film film) {
-        getFilmById(film.getId());
-        String sqlQuery = "UPDATE films "
-                + "SET film_name = ?, "
-                + "description = ?, "
-                + "duration = ?, "
-                + "release_date = ?, "
-                + "rating_id = ? "
-                + "WHERE film_id = ?";
-        jdbcTemplate.update(sqlQuery, film.getName(), film.getDescription(), film.getDuration(),
-                film.getReleaseDate(), film.getMpa().getId(), film.getId());
-        addGenre(film.getId(), film.getGenres());
         int filmId = film.getId();
-        film.setGenres(getGenres(filmId));
-        return getFilmById(filmId);
+        List<Long> versions = jdbcTemplate.query(UPDATE_FILM, (rs, rowNum) -> rs.getLong("version"),
+                film.getName(), film.getDescription(), film.getDuration(), film.getReleaseDate(),
+                film.getMpa().getId(), filmId);
+        if (versions.isEmpty()) {
+            throw new NotFoundException("Movie with ID = " + filmId + " not found");
+        }
+        Set<Integer> genreIds = new TreeSet<>();
+        if (film.getGenres() != null) {
+            film.getGenres().forEach(genre -> genreIds.add(genre.getId()));
+        }
+        Set<Integer> currentGenreIds = new HashSet<>(jdbcTemplate.queryForList(
+                SELECT_GENRE_IDS_BY_FILM, Integer.class, filmId));
+        List<Integer> removed = currentGenreIds.stream().filter(genreId -> !genreIds.contains(genreId)).toList();
+        List<Integer> added = genreIds.stream().filter(genreId -> !currentGenreIds.contains(genreId)).toList();
+        changeGenres(DELETE_FILM_GENRE, filmId, removed);
+        changeGenres(INSERT_FILM_GENRE, filmId, added);
+
+        Set<Genre> genres = new TreeSet<>(Comparator.comparing(Genre::getId));
+        genreIds.forEach(genreId -> genres.add(genreStorage.findGenre(genreId)));
+        Film updated = buildFilm(filmId, film.getName(), film.getDescription(), film.getDuration(),
+                film.getReleaseDate(), ratingMpaStorage.findRatingMpa(film.getMpa().getId()), genres);
+        updated.setVersion(versions.get(0));
+        return updated;
     }
 
     @Override
     public void removeFilm(int filmId) {
+        deleteAllGenresById(filmId);
+        jdbcTemplate.update("DELETE FROM likes WHERE film_id = ?", filmId);
         String sqlQuery = "DELETE FROM films WHERE film_id = ?";
+        jdbcTemplate.update(sqlQuery, filmId);
     }
 
     @Override
     public Film getFilmById(int filmId) {
-        String sqlQuery = "SELECT * FROM films "
-                + "JOIN rating_mpa ON films.rating_id = rating_mpa.rating_id "
-                + "WHERE film_id = ?";
-        SqlRowSet srs = jdbcTemplate.queryForRowSet(sqlQuery, filmId);
+        SqlRowSet srs = jdbcTemplate.queryForRowSet(SELECT_FILM_BY_ID, filmId);
         if (srs.next()) {
             return filmMap(srs);
         } else {
@@ -116,33 +215,57 @@ public class FilmDbStorage implements FilmStorage {
         }
     }
 
-    public void addGenre(int filmId, Set<Genre> genres) {
-        deleteAllGenresById(filmId);
-        if (genres == null || genres.isEmpty()) {
+    @Override
+    public boolean existsById(int filmId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(FILM_EXISTS, Boolean.class, filmId));
+    }
+
+    private void changeGenres(String sqlQuery, int filmId, List<Integer> genreIds) {
+        if (genreIds.isEmpty()) {
             return;
         }
-        String sqlQuery = "INSERT INTO film_genres (film_id, genre_id) "
-                + "VALUES (?, ?)";
-        List<Genre> genresTable = new ArrayList<>(genres);
-        this.jdbcTemplate.batchUpdate(sqlQuery, new BatchPreparedStatementSetter() {
+        jdbcTemplate.batchUpdate(sqlQuery, new BatchPreparedStatementSetter() {
             public void setValues(PreparedStatement ps, int i) throws SQLException {
                 ps.setInt(1, filmId);
-                ps.setInt(2, genresTable.get(i).getId());
+                ps.setInt(2, genreIds.get(i));
             }
 
             public int getBatchSize() {
-                return genresTable.size();
+                return genreIds.size();
             }
         });
     }
 
+    // Жанры всех фильмов пакета одним batch-запросом
+    private void insertGenres(List<Film> films) {
+        List<int[]> rows = new ArrayList<>();
+        for (Film film : films) {
+            if (film.getGenres() != null) {
+                film.getGenres().stream().map(Genre::getId).distinct()
+                        .forEach(genreId -> rows.add(new int[]{film.getId(), genreId}));
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_FILM_GENRE,
+                new BatchPreparedStatementSetter() {
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setInt(1, rows.get(i)[0]);
+                        ps.setInt(2, rows.get(i)[1]);
+                    }
+
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                });
+    }
+
     private Set<Genre> getGenres(int filmId) {
         Comparator<Genre> compId = Comparator.comparing(Genre::getId);
         Set<Genre> genres = new TreeSet<>(compId);
-        String sqlQuery = "SELECT film_genres.genre_id, genres.genre_name FROM film_genres "
-                + "JOIN genres ON genres.genre_id = film_genres.genre_id "
-                + "WHERE film_id = ? ORDER BY genre_id ASC";
-        genres.addAll(jdbcTemplate.query(sqlQuery, this::makeGenre, filmId));
+        jdbcTemplate.query(SELECT_GENRE_IDS_BY_FILM, (RowCallbackHandler) rs ->
+                genres.add(genreStorage.findGenre(rs.getInt("genre_id"))), filmId);
         return genres;
     }
 
@@ -165,56 +288,64 @@ public class FilmDbStorage implements FilmStorage {
 
     @Override
     public List<Film> getMostPopularFilms(int count) {
-        String sqlQuery = "SELECT films.film_id, films.film_name, films.description, films.duration, "
-                + "films.release_date, films.rating_id, rating_mpa.rating_name "
-                + "FROM films "
-                + "LEFT JOIN likes ON likes.film_id = films.film_id "
-                + "JOIN rating_mpa ON films.rating_id = rating_mpa.rating_id "
-                + "GROUP BY films.film_id "
-                + "ORDER BY COUNT(likes.film_id) DESC "
-                + "LIMIT ?";
-
-        return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> {
-            int filmId = rs.getInt("film_id");
-            String name = rs.getString("film_name");
-            String description = rs.getString("description");
-            Long duration = rs.getLong("duration");
-
-            LocalDate releaseDate = rs.getTimestamp("release_date") != null
-                    ? rs.getTimestamp("release_date").toLocalDateTime().toLocalDate()
-                    : null;
-
-            int mpaId = rs.getInt("rating_id");
-            String mpaName = rs.getString("rating_name");
-            RatingMpa mpa = new RatingMpa(mpaId, mpaName);
-
-            Set<Genre> genres = getGenres(filmId); // Получаем жанры для каждого фильма
+        List<Film> films = jdbcTemplate.query(SELECT_MOST_POPULAR_FILMS, this::mapFilmWithoutGenres, count);
+        return addGenreForList(films);
+    }
 
-            return buildFilm(filmId, name, description, duration, releaseDate, mpa, genres);
-        }, count);
+    @Override
+    public Map<Integer, FilmFacets> getFilmFacets() {
+        Map<Integer, Set<Integer>> genreIds = new HashMap<>();
+        jdbcTemplate.query("SELECT film_id, genre_id FROM film_genres", (RowCallbackHandler) rs ->
+                genreIds.computeIfAbsent(rs.getInt("film_id"), id -> new HashSet<>()).add(rs.getInt("genre_id")));
+        Map<Integer, FilmFacets> facets = new HashMap<>();
+        jdbcTemplate.query("SELECT film_id, release_date, version FROM films", (RowCallbackHandler) rs -> {
+            int filmId = rs.getInt("film_id");
+            java.sql.Date releaseDate = rs.getDate("release_date");
+            facets.put(filmId, new FilmFacets(releaseDate == null ? 0 : releaseDate.toLocalDate().getYear(),
+                    Set.copyOf(genreIds.getOrDefault(filmId, Set.of())), rs.getLong("version")));
+        });
+        return facets;
     }
 
+    // Жанры догружаются одним запросом на каждые genreBatchSize фильмов, порядок списка сохраняется
     private List<Film> addGenreForList(List<Film> films) {
-        Map<Integer, Film> filmsTable = films.stream().collect(Collectors.toMap(Film::getId, film -> film));
-        String inSql = String.join(", ", Collections.nCopies(filmsTable.size(), "?"));
-        final String sqlQuery = "SELECT * "
-                + "FROM film_genres "
-                + "LEFT OUTER JOIN genres ON film_genres.genre_id = genres.genre_id "
-                + "WHERE film_genres.film_id IN (" + inSql + ") "
-                + "ORDER BY film_genres.genre_id";
-        jdbcTemplate.query(sqlQuery, (rs) -> {
-            Film film = filmsTable.get(rs.getInt("film_id"));
-            if (film != null) {
-                film.addGenre(new Genre(rs.getInt("genre_id"), rs.getString("genre_name")));
-            }
-        }, filmsTable.keySet().toArray());
-        return new ArrayList<>(filmsTable.values());
+        if (films.isEmpty()) {
+            return films;
+        }
+        Map<Integer, Film> filmsTable = new HashMap<>();
+        for (Film film : films) {
+            film.setGenres(new TreeSet<>(Comparator.comparing(Genre::getId)));
+            filmsTable.put(film.getId(), film);
+        }
+        List<Integer> filmIds = new ArrayList<>(filmsTable.keySet());
+        for (int from = 0; from < filmIds.size(); from += genreBatchSize) {
+            List<Integer> chunk = filmIds.subList(from, Math.min(from + genreBatchSize, filmIds.size()));
+            MapSqlParameterSource params = new MapSqlParameterSource("filmIds", chunk.toArray(new Integer[0]));
+            namedJdbcTemplate.query(SELECT_GENRES_BY_FILM_IDS, params, (RowCallbackHandler) rs -> {
+                Film film = filmsTable.get(rs.getInt("film_id"));
+                if (film != null) {
+                    film.addGenre(genreStorage.findGenre(rs.getInt("genre_id")));
+                }
+            });
+        }
+        return films;
     }
 
-    private Genre makeGenre(ResultSet rs, int id) throws SQLException {
-        int genreId = rs.getInt("genre_id");
-        String genreName = rs.getString("genre_name");
-        return new Genre(genreId, genreName);
+    private Film mapFilmWithoutGenres(ResultSet rs, int rowNum) throws SQLException {
+        int filmId = rs.getInt("film_id");
+        String name = rs.getString("film_name");
+        String description = rs.getString("description");
+        Long duration = rs.getLong("duration");
+
+        LocalDate releaseDate = rs.getTimestamp("release_date") != null
+                ? rs.getTimestamp("release_date").toLocalDateTime().toLocalDate()
+                : null;
+
+        RatingMpa mpa = ratingMpaStorage.findRatingMpa(rs.getInt("rating_id"));
+
+        Film film = buildFilm(filmId, name, description, duration, releaseDate, mpa, null);
+        film.setVersion(rs.getLong("version"));
+        return film;
     }
 
     private Film makeFilm(ResultSet rs) throws SQLException {
@@ -252,13 +383,13 @@ public class FilmDbStorage implements FilmStorage {
         LocalDate releaseDate = Objects.requireNonNull(srs.getTimestamp("release_date"))
                 .toLocalDateTime().toLocalDate();
 
-        int mpaId = srs.getInt("rating_id");
-        String mpaName = srs.getString("rating_name");
-        RatingMpa mpa = new RatingMpa(mpaId, mpaName);
+        RatingMpa mpa = ratingMpaStorage.findRatingMpa(srs.getInt("rating_id"));
 
         Set<Genre> genres = getGenres(filmId);
 
-        return buildFilm(filmId, name, description, duration, releaseDate, mpa, genres);
+        Film film = buildFilm(filmId, name, description, duration, releaseDate, mpa, genres);
+        film.setVersion(srs.getLong("version"));
+        return film;
     }
 
     private Film buildFilm(int filmId, String name, String description, Long duration,
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// Атрибуты фильма, которые индекс популярных держит в памяти: год выхода (0, если неизвестен) и жанры
+// для фильтров списка, версия — для ETag фильма и списка без чтения базы
+public record FilmFacets(int year, Set<Integer> genreIds, long version) {
+
+    public static final FilmFacets NONE = new FilmFacets(0, Set.of(), 0);
+
+    public static FilmFacets of(Film film) {
+        Set<Integer> genreIds = new HashSet<>();
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                genreIds.add(genre.getId());
+            }
+        }
+        int year = film.getReleaseDate() == null ? 0 : film.getReleaseDate().getYear();
+        return new FilmFacets(year, Set.copyOf(genreIds), film.getVersion());
+    }
+}
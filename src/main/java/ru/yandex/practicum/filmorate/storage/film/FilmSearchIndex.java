@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+import ru.yandex.practicum.filmorate.storage.like.PopularFilmsIndex;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Обратный индекс по словам названия и описания фильмов. Слова хранятся в нижнем регистре с заменой ё на е
+// в отсортированной карте, поэтому поиск по префиксу — это просмотр её подинтервала
+@Slf4j
+@Component
+public class FilmSearchIndex {
+
+    private static final int PAGE_SIZE = 1000;
+
+    public enum Field {
+        TITLE, DESCRIPTION
+    }
+
+    private final FilmStorage filmStorage;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final Map<Field, ConcurrentSkipListMap<String, int[]>> filmsByToken = new EnumMap<>(Field.class);
+    private final ConcurrentHashMap<Integer, Map<Field, Set<String>>> tokensByFilm = new ConcurrentHashMap<>();
+
+    public FilmSearchIndex(FilmStorage filmStorage, PopularFilmsIndex popularFilmsIndex) {
+        this.filmStorage = filmStorage;
+        this.popularFilmsIndex = popularFilmsIndex;
+        for (Field field : Field.values()) {
+            filmsByToken.put(field, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        filmsByToken.values().forEach(Map::clear);
+        tokensByFilm.clear();
+        int afterId = 0;
+        List<Film> page;
+        do {
+            page = filmStorage.getFilms(afterId, PAGE_SIZE);
+            page.forEach(this::addFilm);
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+        log.info("Поисковый индекс построен: {} фильмов", tokensByFilm.size());
+    }
+
+    // Замена слов фильма идёт внутри compute по его id, поэтому параллельные изменения одного фильма
+    // не перемешивают старые и новые слова в индексе
+    public void addFilm(Film film) {
+        Map<Field, Set<String>> tokens = new EnumMap<>(Field.class);
+        tokens.put(Field.TITLE, tokenize(film.getName()));
+        tokens.put(Field.DESCRIPTION, tokenize(film.getDescription()));
+        tokensByFilm.compute(film.getId(), (filmId, old) -> {
+            if (old != null) {
+                unindex(filmId, old);
+            }
+            tokens.forEach((field, words) -> words.forEach(word -> filmsByToken.get(field)
+                    .compute(word, (token, filmIds) -> SortedIntArrays.insert(filmIds, filmId))));
+            return tokens;
+        });
+    }
+
+    public void updateFilm(Film film) {
+        addFilm(film);
+    }
+
+    public void removeFilm(int filmId) {
+        tokensByFilm.computeIfPresent(filmId, (id, old) -> {
+            unindex(id, old);
+            return null;
+        });
+    }
+
+    // Каждое слово запроса ищется как префикс в выбранных полях, найденные фильмы должны содержать все слова.
+    // Совпадения слова собираются в битовое множество за один проход по спискам фильмов, а из пересечения
+    // в куче остаются только limit фильмов с наибольшим числом лайков
+    public List<Integer> search(String query, Set<Field> fields, int limit) {
+        Set<String> words = tokenize(query);
+        if (words.isEmpty() || fields.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        BitSet found = null;
+        for (String word : words) {
+            BitSet matches = new BitSet();
+            for (Field field : fields) {
+                for (int[] filmIds : filmsByToken.get(field).subMap(word, word + Character.MAX_VALUE).values()) {
+                    for (int filmId : filmIds) {
+                        matches.set(filmId);
+                    }
+                }
+            }
+            if (found == null) {
+                found = matches;
+            } else {
+                found.and(matches);
+            }
+            if (found.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        PriorityQueue<Hit> top = new PriorityQueue<>(Comparator.comparingInt(Hit::likes)
+                .thenComparing(Comparator.comparingInt(Hit::filmId).reversed()));
+        for (int filmId = found.nextSetBit(0); filmId >= 0; filmId = found.nextSetBit(filmId + 1)) {
+            top.add(new Hit(filmId, popularFilmsIndex.getLikes(filmId)));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        Integer[] filmIds = new Integer[top.size()];
+        for (int i = filmIds.length - 1; i >= 0; i--) {
+            filmIds[i] = top.poll().filmId();
+        }
+        return Arrays.asList(filmIds);
+    }
+
+    private static Set<String> tokenize(String text) {
+        Set<String> tokens = new HashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean letter = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private void unindex(int filmId, Map<Field, Set<String>> tokens) {
+        tokens.forEach((field, words) -> words.forEach(word -> filmsByToken.get(field)
+                .computeIfPresent(word, (token, filmIds) -> SortedIntArrays.remove(filmIds, filmId))));
+    }
+
+    private record Hit(int filmId, int likes) {
+    }
+}
@@ -3,17 +3,30 @@ package ru.yandex.practicum.filmorate.storage.film;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.List;
+import java.util.Map;
 
 public interface FilmStorage {
     Film createFilm(Film film);
 
+    // Вставляет фильмы пакетом и проставляет им сгенерированные id
+    List<Film> createFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     Film getFilmById(int id);
 
+    boolean existsById(int id);
+
     List<Film> getAllFilms();
 
+    List<Film> getFilms(int afterId, int limit);
+
+    List<Film> getFilmsByIds(List<Integer> filmIds);
+
     void removeFilm(int id);
 
     List<Film> getMostPopularFilms(int count);
+
+    // Год выхода и жанры всех фильмов для рейтингов популярных по жанрам и годам
+    Map<Integer, FilmFacets> getFilmFacets();
 }
\ No newline at end of file
@@ -1,21 +1,61 @@
 package ru.yandex.practicum.filmorate.storage.genre;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.SingleFlight;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Repository
 public class GenreDbStorage implements GenreStorage {
 
     private final JdbcTemplate jdbcTemplate;
 
-    public GenreDbStorage(JdbcTemplate jdbcTemplate) {
+    // Справочник жанров почти не меняется, поэтому держим его в памяти массивом, индексированным по genre_id
+    private volatile Genre[] genresById;
+    private final List<Runnable> invalidationListeners = new CopyOnWriteArrayList<>();
+    // Номер загрузки справочника, из него строится ETag ответов со справочником
+    private final AtomicLong generation = new AtomicLong();
+    // Перезагрузки из-за неизвестного жанра, начатые на одном поколении справочника, выполняются один раз
+    private final SingleFlight<Long, Long> missReloads;
+
+    public GenreDbStorage(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
         this.jdbcTemplate = jdbcTemplate;
+        this.missReloads = new SingleFlight<>("genres", meterRegistry);
+    }
+
+    // Поколение меняется, только если справочник действительно изменился, иначе каждый промах
+    // сбрасывал бы ETag ответов со справочником
+    @PostConstruct
+    private synchronized void reload() {
+        Genre[] loaded = loadGenres();
+        if (!sameGenres(genresById, loaded)) {
+            genresById = loaded;
+            generation.incrementAndGet();
+        }
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    // Перечитывает справочник и сообщает об этом зависимым кэшам
+    public void invalidateCache() {
+        reload();
+        invalidationListeners.forEach(Runnable::run);
+    }
+
+    public void addInvalidationListener(Runnable listener) {
+        invalidationListeners.add(listener);
     }
 
     @Override
@@ -26,10 +66,9 @@ public class GenreDbStorage implements GenreStorage {
 
     @Override
     public Genre getGenreById(int genreId) {
-        String sqlQuery = "SELECT * FROM genres WHERE genre_id = ?";
-        SqlRowSet srs = jdbcTemplate.queryForRowSet(sqlQuery, genreId);
-        if (srs.next()) {
-            return new Genre(genreId, srs.getString("genre_name"));
+        Genre genre = getCachedGenre(genreId);
+        if (genre != null) {
+            return genre;
         }
         throw new NotFoundException("Жанр не найден: id = " + genreId);
     }
@@ -37,11 +76,62 @@ public class GenreDbStorage implements GenreStorage {
     @Override
     public List<Genre> getAllGenres() {
         List<Genre> genres = new ArrayList<>();
+        for (Genre genre : genresById) {
+            if (genre != null) {
+                genres.add(genre);
+            }
+        }
+        return genres;
+    }
+
+    // Используется при сборке фильмов: неизвестный жанр не должен ронять чтение, поэтому вместо исключения
+    // справочник перечитывается, а если жанра нет и там, возвращается жанр без названия
+    public Genre findGenre(int genreId) {
+        Genre genre = getCachedGenre(genreId);
+        if (genre == null) {
+            missReloads.load(generation.get(), () -> {
+                reload();
+                return generation.get();
+            });
+            genre = getCachedGenre(genreId);
+        }
+        return genre != null ? genre : new Genre(genreId, null);
+    }
+
+    private Genre getCachedGenre(int genreId) {
+        Genre[] genres = genresById;
+        return genreId > 0 && genreId < genres.length ? genres[genreId] : null;
+    }
+
+    private static boolean sameGenres(Genre[] current, Genre[] loaded) {
+        if (current == null || current.length != loaded.length) {
+            return false;
+        }
+        for (int i = 0; i < loaded.length; i++) {
+            if ((current[i] == null) != (loaded[i] == null)) {
+                return false;
+            }
+            if (current[i] != null && !Objects.equals(current[i].getName(), loaded[i].getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Genre[] loadGenres() {
+        List<Genre> genres = new ArrayList<>();
+        int maxId = 0;
         String sqlQuery = "SELECT * FROM genres ";
         SqlRowSet srs = jdbcTemplate.queryForRowSet(sqlQuery);
         while (srs.next()) {
-            genres.add(new Genre(srs.getInt("genre_id"), srs.getString("genre_name")));
+            Genre genre = new Genre(srs.getInt("genre_id"), srs.getString("genre_name"));
+            genres.add(genre);
+            maxId = Math.max(maxId, genre.getId());
         }
-        return genres;
+        Genre[] result = new Genre[maxId + 1];
+        for (Genre genre : genres) {
+            result[genre.getId()] = genre;
+        }
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Ограничивает число одновременно открытых соединений семафором. Виртуальные потоки ждут на семафоре,
+// не занимая потоки-носители и не выстраиваясь в очередь внутри пула соединений.
+// Разрешение возвращается при закрытии соединения
+public class GatedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final long timeoutNanos;
+    private final Timer waitTimer;
+
+    public GatedDataSource(DataSource dataSource, int permits, Duration timeout, MeterRegistry meterRegistry) {
+        super(dataSource);
+        this.permits = new Semaphore(permits, true);
+        this.timeoutNanos = timeout.toNanos();
+        this.waitTimer = Timer.builder("filmorate.jdbc.gate.wait")
+                .description("Время ожидания разрешения на соединение с базой")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        meterRegistry.gauge("filmorate.jdbc.gate.queue", this.permits, Semaphore::getQueueLength);
+        meterRegistry.gauge("filmorate.jdbc.gate.available", this.permits, Semaphore::availablePermits);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        return gated(() -> super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        return gated(() -> super.getConnection(username, password));
+    }
+
+    private void acquire() throws SQLException {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Ожидание соединения с базой прервано", e);
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!acquired) {
+            throw new SQLTransientConnectionException("Не удалось получить соединение с базой за "
+                    + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " мс");
+        }
+    }
+
+    private Connection gated(ConnectionSupplier supplier) throws SQLException {
+        Connection connection;
+        try {
+            connection = supplier.get();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                        try {
+                            connection.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                permits.release();
+                            }
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get() throws SQLException;
+    }
+}
@@ -0,0 +1,157 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.support.KeyHolder;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+// JdbcTemplate, который замеряет каждый запрос. Имя запроса — класс и метод хранилища, из которого он вызван,
+// поэтому число тегов не зависит от текста SQL (запросы с IN (...) разной длины попадают в один таймер)
+@Slf4j
+public class InstrumentedJdbcTemplate extends JdbcTemplate {
+
+    private static final String APPLICATION_PACKAGE = "ru.yandex.practicum.filmorate.";
+    private static final String JDBC_PACKAGE = InstrumentedJdbcTemplate.class.getPackageName();
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private final MeterRegistry meterRegistry;
+    private final long slowQueryNanos;
+
+    public InstrumentedJdbcTemplate(DataSource dataSource, MeterRegistry meterRegistry, Duration slowQueryThreshold) {
+        super(dataSource);
+        this.meterRegistry = meterRegistry;
+        this.slowQueryNanos = slowQueryThreshold.toNanos();
+    }
+
+    @Override
+    public <T> T query(String sql, ResultSetExtractor<T> rse) throws DataAccessException {
+        return measure(sql, () -> super.query(sql, rse), InstrumentedJdbcTemplate::countRows);
+    }
+
+    @Override
+    public <T> T query(PreparedStatementCreator psc, PreparedStatementSetter pss, ResultSetExtractor<T> rse)
+            throws DataAccessException {
+        return measure(sqlOf(psc), () -> super.query(psc, pss, rse), InstrumentedJdbcTemplate::countRows);
+    }
+
+    @Override
+    public void execute(String sql) throws DataAccessException {
+        measure(sql, () -> {
+            super.execute(sql);
+            return 0;
+        }, rows -> rows);
+    }
+
+    @Override
+    public int update(String sql) throws DataAccessException {
+        return measure(sql, () -> super.update(sql), rows -> rows);
+    }
+
+    @Override
+    protected int update(PreparedStatementCreator psc, PreparedStatementSetter pss) throws DataAccessException {
+        return measure(sqlOf(psc), () -> super.update(psc, pss), rows -> rows);
+    }
+
+    @Override
+    public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) throws DataAccessException {
+        return measure(sqlOf(psc), () -> super.update(psc, generatedKeyHolder), rows -> rows);
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) throws DataAccessException {
+        return measure(sql, () -> super.batchUpdate(sql, pss), InstrumentedJdbcTemplate::sum);
+    }
+
+    @Override
+    public int[] batchUpdate(PreparedStatementCreator psc, BatchPreparedStatementSetter pss,
+                             KeyHolder generatedKeyHolder) throws DataAccessException {
+        return measure(sqlOf(psc), () -> super.batchUpdate(psc, pss, generatedKeyHolder),
+                InstrumentedJdbcTemplate::sum);
+    }
+
+    private <T> T measure(String sql, Supplier<T> call, ToIntFunction<T> rowCounter) {
+        String name = callerName();
+        QueryCounter.increment();
+        long start = System.nanoTime();
+        String outcome = "error";
+        T result = null;
+        try {
+            result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            Timer.builder("filmorate.jdbc.query")
+                    .tag("query", name)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            if (result != null) {
+                DistributionSummary.builder("filmorate.jdbc.rows")
+                        .tag("query", name)
+                        .register(meterRegistry)
+                        .record(rowCounter.applyAsInt(result));
+            }
+            if (elapsed >= slowQueryNanos) {
+                log.warn("Медленный запрос {} выполнялся {} мс: {}", name, TimeUnit.NANOSECONDS.toMillis(elapsed), sql);
+            }
+        }
+    }
+
+    // Первый кадр стека из кода приложения вне этого пакета, например FilmDbStorage.getFilmById
+    private static String callerName() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APPLICATION_PACKAGE)
+                        && !frame.getClassName().startsWith(JDBC_PACKAGE))
+                .findFirst()
+                .map(frame -> simpleName(frame.getClassName()) + "." + methodName(frame.getMethodName()))
+                .orElse("other"));
+    }
+
+    private static String simpleName(String className) {
+        String name = className.substring(className.lastIndexOf('.') + 1);
+        int nested = name.indexOf('$');
+        return nested < 0 ? name : name.substring(0, nested);
+    }
+
+    // Для лямбд вида lambda$getFilmById$0 берётся имя метода, в котором объявлена лямбда
+    private static String methodName(String methodName) {
+        if (methodName.startsWith("lambda$")) {
+            int end = methodName.indexOf('$', "lambda$".length());
+            return methodName.substring("lambda$".length(), end < 0 ? methodName.length() : end);
+        }
+        return methodName;
+    }
+
+    private static String sqlOf(PreparedStatementCreator psc) {
+        return psc instanceof SqlProvider provider ? provider.getSql() : String.valueOf(psc);
+    }
+
+    private static int countRows(Object result) {
+        return result instanceof Collection<?> collection ? collection.size() : 1;
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += Math.max(count, 0);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+public class JdbcConfig {
+
+    // Заменяет JdbcTemplate из автоконфигурации Spring Boot
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource, MeterRegistry meterRegistry,
+                                     @Value("${filmorate.jdbc.slow-query-threshold:200ms}") Duration slowQuery) {
+        return new InstrumentedJdbcTemplate(dataSource, meterRegistry, slowQuery);
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// Оборачивает DataSource в GatedDataSource. Включается filmorate.jdbc.gate.enabled=true,
+// по умолчанию число разрешений равно размеру пула Hikari
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.jdbc.gate.enabled", havingValue = "true")
+public class JdbcGatePostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final int permits;
+    private final Duration timeout;
+
+    public JdbcGatePostProcessor(ObjectProvider<MeterRegistry> meterRegistry,
+                                 @Value("${filmorate.jdbc.gate.permits:10}") int permits,
+                                 @Value("${filmorate.jdbc.gate.timeout:5s}") Duration timeout) {
+        this.meterRegistry = meterRegistry;
+        this.permits = permits;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof GatedDataSource)) {
+            log.info("Соединения с базой ограничены {} разрешениями, ожидание до {}", permits, timeout);
+            return new GatedDataSource(dataSource, permits, timeout, meterRegistry.getObject());
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.storage.jdbc;
+
+// Счётчик запросов к базе в рамках одного HTTP-запроса. Считает только между start и stop в том же потоке
+public final class QueryCounter {
+
+    private static final ThreadLocal<int[]> COUNTER = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    public static void start() {
+        COUNTER.set(new int[1]);
+    }
+
+    public static int stop() {
+        int[] counter = COUNTER.get();
+        COUNTER.remove();
+        return counter == null ? 0 : counter[0];
+    }
+
+    static void increment() {
+        int[] counter = COUNTER.get();
+        if (counter != null) {
+            counter[0]++;
+        }
+    }
+}
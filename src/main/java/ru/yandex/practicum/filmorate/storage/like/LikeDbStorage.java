@@ -1,38 +1,128 @@
 package ru.yandex.practicum.filmorate.storage.like;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.film.FilmRowMapper;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Component
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "jdbc", matchIfMissing = true)
 @RequiredArgsConstructor
 public class LikeDbStorage implements LikeStorage {
     private final JdbcTemplate jdbcTemplate;
 
-    private static final String ADD_LIKE_QUERY = "INSERT INTO LIKES VALUES (?, ?)";
-    private static final String DELETE_LIKE_QUERY = "DELETE FROM LIKES WHERE film_id = ? and user_id = ?";
-    private static final String GET_MOST_POPULAR_LIKE_QUERY = "select f.*, mr.name mpa_name from films f " +
-            "left join likes fl on f.id = fl.film_id join mpa mr on f.mpa_id = mr.id " +
-            "group by f.name, f.id, mr.name order by count(fl.film_id) desc limit ?";
+    // Открытые запросы проверяются на использование индексов в QueryPlanTests
+    public static final String ADD_LIKE_QUERY = "INSERT INTO likes (film_id, user_id) SELECT ?, ? "
+            + "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+    public static final String DELETE_LIKE_QUERY = "DELETE FROM LIKES WHERE film_id = ? and user_id = ?";
+    public static final String CHANGE_LIKE_COUNT_QUERY = "UPDATE films SET like_count = like_count + ? "
+            + "WHERE film_id = ?";
+    public static final String GET_MOST_POPULAR_LIKE_QUERY = "SELECT f.film_id, f.film_name AS name, "
+            + "f.description, f.release_date AS releasedate, f.duration, "
+            + "f.rating_id AS mpa_id, mr.rating_name AS mpa_name "
+            + "FROM films f JOIN rating_mpa mr ON f.rating_id = mr.rating_id "
+            + "ORDER BY f.like_count DESC, f.film_id LIMIT ?";
+    private static final String GET_ALL_LIKES_QUERY = "SELECT film_id, user_id FROM likes";
+    private static final String GET_LIKE_COUNTS_QUERY = "SELECT film_id, like_count FROM films";
+    private static final String REPAIR_LIKE_COUNTS_QUERY = "UPDATE films SET like_count = "
+            + "(SELECT COUNT(*) FROM likes WHERE likes.film_id = films.film_id) "
+            + "WHERE like_count <> (SELECT COUNT(*) FROM likes WHERE likes.film_id = films.film_id)";
 
+    // Счётчик в films меняется только если лайк действительно добавился,
+    // поэтому вызывать метод нужно внутри транзакции сервиса
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        boolean added = jdbcTemplate.update(ADD_LIKE_QUERY, filmId, userId, filmId, userId) > 0;
+        if (added) {
+            jdbcTemplate.update(CHANGE_LIKE_COUNT_QUERY, 1, filmId);
+        }
+        return added;
+    }
 
+    @Override
+    public boolean deleteLike(int filmId, int userId) {
+        boolean deleted = jdbcTemplate.update(DELETE_LIKE_QUERY, filmId, userId) > 0;
+        if (deleted) {
+            jdbcTemplate.update(CHANGE_LIKE_COUNT_QUERY, -1, filmId);
+        }
+        return deleted;
+    }
 
+    // Пакетные версии возвращают только те лайки, которые действительно изменили таблицу
     @Override
-    public void addLike(int filmId, int userId) {
-        jdbcTemplate.update(ADD_LIKE_QUERY, filmId, userId);
+    public List<LikePair> addLikes(List<LikePair> likes) {
+        List<Object[]> batchArgs = new ArrayList<>(likes.size());
+        for (LikePair like : likes) {
+            batchArgs.add(new Object[]{like.filmId(), like.userId(), like.filmId(), like.userId()});
+        }
+        List<LikePair> added = changed(likes, jdbcTemplate.batchUpdate(ADD_LIKE_QUERY, batchArgs));
+        changeLikeCounts(added, 1);
+        return added;
     }
 
     @Override
-    public void deleteLike(int filmId, int userId) {
-        jdbcTemplate.update(DELETE_LIKE_QUERY, filmId, userId);
+    public List<LikePair> deleteLikes(List<LikePair> likes) {
+        List<Object[]> batchArgs = new ArrayList<>(likes.size());
+        for (LikePair like : likes) {
+            batchArgs.add(new Object[]{like.filmId(), like.userId()});
+        }
+        List<LikePair> deleted = changed(likes, jdbcTemplate.batchUpdate(DELETE_LIKE_QUERY, batchArgs));
+        changeLikeCounts(deleted, -1);
+        return deleted;
     }
 
     @Override
     public List<Film> getPopular(Integer count) {
         return jdbcTemplate.query(GET_MOST_POPULAR_LIKE_QUERY, new FilmRowMapper(), count);
     }
-}
\ No newline at end of file
+
+    @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        Map<Integer, Integer> likeCounts = new HashMap<>();
+        jdbcTemplate.query(GET_LIKE_COUNTS_QUERY, (RowCallbackHandler) rs ->
+                likeCounts.put(rs.getInt("film_id"), rs.getInt("like_count")));
+        return likeCounts;
+    }
+
+    @Override
+    public void forEachLike(Consumer<LikePair> action) {
+        jdbcTemplate.query(GET_ALL_LIKES_QUERY, (RowCallbackHandler) rs ->
+                action.accept(new LikePair(rs.getInt("film_id"), rs.getInt("user_id"))));
+    }
+
+    @Override
+    public int repairLikeCounts() {
+        return jdbcTemplate.update(REPAIR_LIKE_COUNTS_QUERY);
+    }
+
+    private static List<LikePair> changed(List<LikePair> likes, int[] updateCounts) {
+        List<LikePair> changed = new ArrayList<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] > 0) {
+                changed.add(likes.get(i));
+            }
+        }
+        return changed;
+    }
+
+    private void changeLikeCounts(List<LikePair> likes, int sign) {
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (LikePair like : likes) {
+            deltas.merge(like.filmId(), sign, Integer::sum);
+        }
+        List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        deltas.forEach((filmId, delta) -> batchArgs.add(new Object[]{delta, filmId}));
+        if (!batchArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(CHANGE_LIKE_COUNT_QUERY, batchArgs);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+// Индекс в памяти, который строится по таблице likes и обновляется после каждого зафиксированного изменения
+public interface LikeListener {
+
+    void likeAdded(int filmId, int userId);
+
+    void likeRemoved(int filmId, int userId);
+
+    // Фильм удалён вместе со всеми его лайками
+    void filmRemoved(int filmId);
+
+    // Полностью перечитать состояние из базы, например после загрузки данных мимо хранилищ
+    void rebuild();
+}
@@ -0,0 +1,4 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+public record LikePair(int filmId, int userId) {
+}
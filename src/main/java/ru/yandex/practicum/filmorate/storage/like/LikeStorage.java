@@ -2,11 +2,24 @@ package ru.yandex.practicum.filmorate.storage.like;
 
 import ru.yandex.practicum.filmorate.model.Film;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface LikeStorage {
-    void addLike(int filmId, int userId);
+    boolean addLike(int filmId, int userId);
 
-    void deleteLike(int filmId, int userId);
+    boolean deleteLike(int filmId, int userId);
+
+    List<LikePair> addLikes(List<LikePair> likes);
+
+    List<LikePair> deleteLikes(List<LikePair> likes);
 
     List<Film> getPopular(Integer count);
-}
\ No newline at end of file
+
+    Map<Integer, Integer> getLikeCounts();
+
+    // Обходит всю таблицу likes без загрузки её в память
+    void forEachLike(Consumer<LikePair> action);
+
+    int repairLikeCounts();
+}
@@ -0,0 +1,294 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmFacets;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+// Рейтинг фильмов по числу лайков, который держится в памяти и обновляется вместе с likes.
+// Кроме общего рейтинга есть такие же рейтинги по каждому жанру, году выхода и паре жанр-год, поэтому
+// выборка с любым набором фильтров стоит O(count), а не зависит от размера каталога.
+// Источник истины — колонка films.like_count, при старте и по расписанию рейтинг сверяется с ней.
+@Slf4j
+@Component
+public class PopularFilmsIndex implements LikeListener {
+
+    private static final Comparator<Entry> BY_LIKES_DESC = Comparator.comparingInt(Entry::likes).reversed()
+            .thenComparingInt(Entry::filmId);
+    private static final Set<Entry> NO_ENTRIES = Collections.emptySet();
+
+    private final LikeStorage likeStorage;
+    private final FilmStorage filmStorage;
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(BY_LIKES_DESC);
+    private final ConcurrentHashMap<Integer, ConcurrentSkipListSet<Entry>> rankingByGenre = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, ConcurrentSkipListSet<Entry>> rankingByYear = new ConcurrentHashMap<>();
+    // Ключ — жанр в старших 32 битах и год в младших, см. genreYear
+    private final ConcurrentHashMap<Long, ConcurrentSkipListSet<Entry>> rankingByGenreYear = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    // Меняются только внутри compute по тому же фильму в entries
+    private final ConcurrentHashMap<Integer, FilmFacets> facets = new ConcurrentHashMap<>();
+    // Изменения, пришедшие во время перестройки; null, пока перестройка не идёт
+    private volatile RebuildChanges rebuildChanges;
+
+    public PopularFilmsIndex(LikeStorage likeStorage, FilmStorage filmStorage) {
+        this.likeStorage = likeStorage;
+        this.filmStorage = filmStorage;
+    }
+
+    @Override
+    @PostConstruct
+    public synchronized void rebuild() {
+        // Снимок из базы не видит лайков, зафиксированных после чтения, поэтому изменения за время
+        // перестройки копятся отдельно и прибавляются к снимку, а не теряются при его записи в индекс
+        RebuildChanges changes = new RebuildChanges();
+        rebuildChanges = changes;
+        try {
+            Map<Integer, Integer> likeCounts = likeStorage.getLikeCounts();
+            Map<Integer, FilmFacets> filmFacets = filmStorage.getFilmFacets();
+            for (Integer filmId : new ArrayList<>(entries.keySet())) {
+                if (!likeCounts.containsKey(filmId)) {
+                    // Фильм, добавленный после снимка, в нём отсутствует, но удалять его не нужно
+                    entries.computeIfPresent(filmId, (id, entry) ->
+                            changes.touched.contains(id) ? entry : drop(id, entry));
+                }
+            }
+            likeCounts.forEach((filmId, likes) -> entries.compute(filmId, (id, old) -> {
+                if (old == null && changes.removed.contains(id)) {
+                    return null;
+                }
+                FilmFacets newFacets = old != null && changes.touched.contains(id)
+                        ? facetsOf(id) : filmFacets.getOrDefault(id, FilmFacets.NONE);
+                return place(old, new Entry(id, likes + changes.likeDeltas.getOrDefault(id, 0)), newFacets);
+            }));
+            log.info("Рейтинг популярных фильмов построен: {} фильмов", likeCounts.size());
+        } finally {
+            rebuildChanges = null;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.consistency-check-ms:600000}",
+            initialDelayString = "${filmorate.likes.consistency-check-ms:600000}")
+    public void checkConsistency() {
+        int repaired = likeStorage.repairLikeCounts();
+        if (repaired > 0) {
+            log.warn("Счётчики лайков расходились с таблицей likes у {} фильмов", repaired);
+        }
+        rebuild();
+    }
+
+    // Новый фильм или изменение года и жанров существующего
+    public void addFilm(Film film) {
+        entries.compute(film.getId(), (id, old) -> {
+            RebuildChanges changes = rebuildChanges;
+            if (changes != null) {
+                changes.touched.add(id);
+            }
+            return place(old, old == null ? new Entry(id, 0) : old, FilmFacets.of(film));
+        });
+    }
+
+    // Версия фильма входит в отпечаток выдачи: данные фильма в ней изменились, даже если место прежнее
+    public void updateFilm(Film film) {
+        addFilm(film);
+    }
+
+    @Override
+    public void likeAdded(int filmId, int userId) {
+        changeLikes(filmId, 1);
+    }
+
+    @Override
+    public void likeRemoved(int filmId, int userId) {
+        changeLikes(filmId, -1);
+    }
+
+    @Override
+    public void filmRemoved(int filmId) {
+        removeFilm(filmId);
+    }
+
+    public void removeFilm(int filmId) {
+        RebuildChanges changes = rebuildChanges;
+        if (changes != null) {
+            changes.removed.add(filmId);
+        }
+        entries.computeIfPresent(filmId, this::drop);
+    }
+
+    public void changeLikes(int filmId, int delta) {
+        entries.compute(filmId, (id, old) -> {
+            RebuildChanges changes = rebuildChanges;
+            if (changes != null) {
+                changes.likeDeltas.merge(id, delta, Integer::sum);
+            }
+            return place(old, new Entry(id, (old == null ? 0 : old.likes()) + delta), facetsOf(id));
+        });
+    }
+
+    // Версия фильма из последнего зафиксированного изменения или null, если фильма в индексе нет
+    public Long getFilmVersion(int filmId) {
+        return entries.containsKey(filmId) ? facetsOf(filmId).version() : null;
+    }
+
+    public int getLikes(int filmId) {
+        Entry entry = entries.get(filmId);
+        return entry == null ? 0 : entry.likes();
+    }
+
+    public List<Integer> getTopFilmIds(int count) {
+        return getTopFilmIds(count, null, null);
+    }
+
+    public List<Integer> getTopFilmIds(int count, Integer genreId, Integer year) {
+        List<Integer> filmIds = new ArrayList<>(Math.max(0, Math.min(count, entries.size())));
+        forEachTop(count, genreId, year, entry -> filmIds.add(entry.filmId()));
+        return filmIds;
+    }
+
+    // Отпечаток выдачи getTopFilmIds: id, число лайков и версия каждого фильма в ней, служит ETag списка.
+    // Лайки фильмов за пределами выдачи его не меняют, поэтому под потоком лайков ETag живёт,
+    // пока не изменится сама выдача; индекс меняется только после фиксации, так что отпечаток не опережает базу
+    public long getTopFingerprint(int count, Integer genreId, Integer year) {
+        long[] hash = {count};
+        forEachTop(count, genreId, year, entry -> {
+            hash[0] = mix(hash[0], entry.filmId());
+            hash[0] = mix(hash[0], entry.likes());
+            hash[0] = mix(hash[0], facetsOf(entry.filmId()).version());
+        });
+        return hash[0];
+    }
+
+    // Обходит только первые count записей рейтинга, который соответствует набору фильтров
+    private void forEachTop(int count, Integer genreId, Integer year, Consumer<Entry> action) {
+        Set<Entry> source;
+        if (genreId != null && year != null) {
+            source = Objects.requireNonNullElse(rankingByGenreYear.get(genreYear(genreId, year)), NO_ENTRIES);
+        } else if (year != null) {
+            source = Objects.requireNonNullElse(rankingByYear.get(year), NO_ENTRIES);
+        } else if (genreId != null) {
+            source = Objects.requireNonNullElse(rankingByGenre.get(genreId), NO_ENTRIES);
+        } else {
+            source = ranking;
+        }
+        int found = 0;
+        for (Entry entry : source) {
+            if (found >= count) {
+                break;
+            }
+            if (entry.equals(entries.get(entry.filmId()))) {
+                action.accept(entry);
+                found++;
+            }
+        }
+    }
+
+    private static long genreYear(int genreId, int year) {
+        return (long) genreId << 32 | (year & 0xFFFFFFFFL);
+    }
+
+    private static long mix(long hash, long value) {
+        long mixed = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return mixed ^ (mixed >>> 32);
+    }
+
+    private FilmFacets facetsOf(int filmId) {
+        return facets.getOrDefault(filmId, FilmFacets.NONE);
+    }
+
+    private Entry drop(int filmId, Entry entry) {
+        FilmFacets old = facets.remove(filmId);
+        move(entry, old == null ? FilmFacets.NONE : old, null, FilmFacets.NONE);
+        return null;
+    }
+
+    // Вызывается внутри compute по фильму, поэтому запись и атрибуты одного фильма меняет один поток
+    private Entry place(Entry old, Entry entry, FilmFacets newFacets) {
+        FilmFacets oldFacets = facetsOf(entry.filmId());
+        if (entry.equals(old) && oldFacets.equals(newFacets)) {
+            return old;
+        }
+        facets.put(entry.filmId(), newFacets);
+        move(old, oldFacets, entry, newFacets);
+        return entry;
+    }
+
+    // Переносит запись фильма во всех рейтингах, где она была или должна оказаться
+    private void move(Entry old, FilmFacets oldFacets, Entry entry, FilmFacets newFacets) {
+        update(ranking, old, entry, old != null, entry != null);
+        Set<Integer> genreIds = new HashSet<>(oldFacets.genreIds());
+        genreIds.addAll(newFacets.genreIds());
+        for (Integer genreId : genreIds) {
+            update(rankingByGenre.computeIfAbsent(genreId, id -> new ConcurrentSkipListSet<>(BY_LIKES_DESC)),
+                    old, entry,
+                    old != null && oldFacets.genreIds().contains(genreId),
+                    entry != null && newFacets.genreIds().contains(genreId));
+        }
+        for (int year : new int[]{oldFacets.year(), newFacets.year()}) {
+            if (year != 0) {
+                update(rankingByYear.computeIfAbsent(year, id -> new ConcurrentSkipListSet<>(BY_LIKES_DESC)),
+                        old, entry,
+                        old != null && oldFacets.year() == year,
+                        entry != null && newFacets.year() == year);
+            }
+        }
+        Set<Long> oldGenreYears = genreYears(oldFacets);
+        Set<Long> newGenreYears = genreYears(newFacets);
+        Set<Long> genreYears = new HashSet<>(oldGenreYears);
+        genreYears.addAll(newGenreYears);
+        for (Long key : genreYears) {
+            update(rankingByGenreYear.computeIfAbsent(key, id -> new ConcurrentSkipListSet<>(BY_LIKES_DESC)),
+                    old, entry,
+                    old != null && oldGenreYears.contains(key),
+                    entry != null && newGenreYears.contains(key));
+        }
+    }
+
+    private static Set<Long> genreYears(FilmFacets filmFacets) {
+        if (filmFacets.year() == 0) {
+            return Set.of();
+        }
+        Set<Long> keys = new HashSet<>();
+        for (Integer genreId : filmFacets.genreIds()) {
+            keys.add(genreYear(genreId, filmFacets.year()));
+        }
+        return keys;
+    }
+
+    // Новая запись добавляется раньше удаления старой: читатели видят ровно одну из них,
+    // так как в entries до выхода из compute остаётся старая
+    private static void update(Set<Entry> set, Entry old, Entry entry, boolean wasIn, boolean isIn) {
+        boolean unchanged = wasIn && isIn && entry.equals(old);
+        if (isIn && !unchanged) {
+            set.add(entry);
+        }
+        if (wasIn && !unchanged) {
+            set.remove(old);
+        }
+    }
+
+    private record Entry(int filmId, int likes) {
+    }
+
+    // Пишутся внутри compute по фильму, а перестройка читает их в compute по тому же фильму,
+    // так что изменение попадает либо в дельту, либо поверх уже перестроенной записи
+    private static class RebuildChanges {
+        private final Map<Integer, Integer> likeDeltas = new ConcurrentHashMap<>();
+        private final Set<Integer> touched = ConcurrentHashMap.newKeySet();
+        private final Set<Integer> removed = ConcurrentHashMap.newKeySet();
+    }
+}
@@ -0,0 +1,203 @@
+package ru.yandex.practicum.filmorate.storage.like;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Лайки в памяти в двух направлениях: пользователь -> отсортированные id фильмов и фильм -> id пользователей.
+// Рекомендации строятся по пользователям с наибольшим числом общих лайков.
+// Перестройка собирает новые карты целиком и подменяет ими старые одной записью; изменения, пришедшие
+// за время сборки, повторяются на новых картах (вставка и удаление id идемпотентны), поэтому не теряются
+@Slf4j
+@Component
+public class RecommendationIndex implements LikeListener {
+
+    private final LikeStorage likeStorage;
+    private final int similarUsers;
+    private final int maxLikersPerFilm;
+    private volatile Likes likes = new Likes(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+    // Изменения, пришедшие во время перестройки; null, пока перестройка не идёт
+    private volatile Queue<Consumer<Likes>> rebuildChanges;
+    // Изменения берут её на чтение и не мешают друг другу, подмена карт — на запись
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    public RecommendationIndex(LikeStorage likeStorage,
+                               @Value("${filmorate.recommendations.similar-users:20}") int similarUsers,
+                               @Value("${filmorate.recommendations.max-likers-per-film:2000}") int maxLikersPerFilm) {
+        this.likeStorage = likeStorage;
+        this.similarUsers = similarUsers;
+        this.maxLikersPerFilm = maxLikersPerFilm;
+    }
+
+    // Таблица читается один раз, массивы сортируются параллельно в общем ForkJoinPool
+    @Override
+    @PostConstruct
+    public synchronized void rebuild() {
+        Queue<Consumer<Likes>> changes = new ConcurrentLinkedQueue<>();
+        rebuildChanges = changes;
+        try {
+            Map<Integer, IntList> films = new HashMap<>();
+            Map<Integer, IntList> users = new HashMap<>();
+            likeStorage.forEachLike(like -> {
+                films.computeIfAbsent(like.userId(), id -> new IntList()).add(like.filmId());
+                users.computeIfAbsent(like.filmId(), id -> new IntList()).add(like.userId());
+            });
+            Likes rebuilt = new Likes(sorted(films), sorted(users));
+            replay(changes, rebuilt);
+            swapLock.writeLock().lock();
+            try {
+                replay(changes, rebuilt);
+                likes = rebuilt;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            log.info("Индекс рекомендаций построен: {} пользователей, {} фильмов", films.size(), users.size());
+        } finally {
+            rebuildChanges = null;
+        }
+    }
+
+    @Override
+    public void likeAdded(int filmId, int userId) {
+        change(current -> {
+            current.filmsByUser().compute(userId, (id, filmIds) -> SortedIntArrays.insert(filmIds, filmId));
+            current.usersByFilm().compute(filmId, (id, userIds) -> SortedIntArrays.insert(userIds, userId));
+        });
+    }
+
+    @Override
+    public void likeRemoved(int filmId, int userId) {
+        change(current -> {
+            current.filmsByUser().computeIfPresent(userId, (id, filmIds) -> SortedIntArrays.remove(filmIds, filmId));
+            current.usersByFilm().computeIfPresent(filmId, (id, userIds) -> SortedIntArrays.remove(userIds, userId));
+        });
+    }
+
+    @Override
+    public void filmRemoved(int filmId) {
+        change(current -> {
+            int[] userIds = current.usersByFilm().remove(filmId);
+            if (userIds != null) {
+                for (int userId : userIds) {
+                    current.filmsByUser().computeIfPresent(userId,
+                            (id, filmIds) -> SortedIntArrays.remove(filmIds, filmId));
+                }
+            }
+        });
+    }
+
+    // 1. По фильмам пользователя считаем число общих лайков с другими пользователями. Фильмы, которые лайкнули
+    //    больше maxLikersPerFilm человек, почти ничего не говорят о вкусе и пропускаются, это ограничивает время.
+    // 2. Оставляем similarUsers самых похожих через кучу ограниченного размера.
+    // 3. Их фильмы, которых нет у пользователя, ранжируем по сумме сходства лайкнувших.
+    public List<Integer> recommend(int userId, int limit) {
+        Map<Integer, int[]> filmsByUser = likes.filmsByUser();
+        Map<Integer, int[]> usersByFilm = likes.usersByFilm();
+        int[] ownFilms = filmsByUser.getOrDefault(userId, SortedIntArrays.EMPTY);
+        Map<Integer, Integer> overlap = new HashMap<>();
+        for (int filmId : ownFilms) {
+            int[] likers = usersByFilm.getOrDefault(filmId, SortedIntArrays.EMPTY);
+            if (likers.length > maxLikersPerFilm) {
+                continue;
+            }
+            for (int otherId : likers) {
+                if (otherId != userId) {
+                    overlap.merge(otherId, 1, Integer::sum);
+                }
+            }
+        }
+
+        PriorityQueue<Map.Entry<Integer, Integer>> nearest = new PriorityQueue<>(
+                Map.Entry.<Integer, Integer>comparingByValue()
+                        .thenComparing(Map.Entry.<Integer, Integer>comparingByKey().reversed()));
+        for (Map.Entry<Integer, Integer> entry : overlap.entrySet()) {
+            nearest.add(entry);
+            if (nearest.size() > similarUsers) {
+                nearest.poll();
+            }
+        }
+
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (Map.Entry<Integer, Integer> neighbour : nearest) {
+            for (int filmId : filmsByUser.getOrDefault(neighbour.getKey(), SortedIntArrays.EMPTY)) {
+                if (!SortedIntArrays.contains(ownFilms, filmId)) {
+                    scores.merge(filmId, neighbour.getValue(), Integer::sum);
+                }
+            }
+        }
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        List<Integer> filmIds = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            filmIds.add(ranked.get(i).getKey());
+        }
+        return filmIds;
+    }
+
+    // Изменение применяется к текущим картам и, если идёт перестройка, запоминается для новых
+    private void change(Consumer<Likes> change) {
+        swapLock.readLock().lock();
+        try {
+            change.accept(likes);
+            Queue<Consumer<Likes>> changes = rebuildChanges;
+            if (changes != null) {
+                changes.add(change);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private static void replay(Queue<Consumer<Likes>> changes, Likes target) {
+        Consumer<Likes> change;
+        while ((change = changes.poll()) != null) {
+            change.accept(target);
+        }
+    }
+
+    private static ConcurrentHashMap<Integer, int[]> sorted(Map<Integer, IntList> source) {
+        ConcurrentHashMap<Integer, int[]> sorted = new ConcurrentHashMap<>();
+        source.entrySet().parallelStream().forEach(entry -> {
+            int[] values = entry.getValue().toArray();
+            Arrays.sort(values);
+            sorted.put(entry.getKey(), values);
+        });
+        return sorted;
+    }
+
+    private record Likes(ConcurrentHashMap<Integer, int[]> filmsByUser,
+                         ConcurrentHashMap<Integer, int[]> usersByFilm) {
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import java.time.LocalDate;
+
+// Фильм в памяти: жанры и рейтинг хранятся только идентификаторами, названия берутся из справочников при чтении
+record FilmRow(int id, String name, String description, Long duration, LocalDate releaseDate,
+               int mpaId, int[] genreIds, long version) {
+
+    FilmRow withVersion(long newVersion) {
+        return new FilmRow(id, name, description, duration, releaseDate, mpaId, genreIds, newVersion);
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+
+import java.util.List;
+
+// EventStorage без SQL: события лежат в InMemoryStore и пишутся в его журнал вместе с остальными изменениями
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "memory")
+@RequiredArgsConstructor
+public class InMemoryEventStorage implements EventStorage {
+
+    private final InMemoryStore store;
+
+    @Override
+    public void addEvents(List<Event> events) {
+        if (!events.isEmpty()) {
+            store.addEvents(events);
+        }
+    }
+
+    @Override
+    public List<Event> getEvents(int userId, long afterId, int limit) {
+        return store.getEvents(userId, afterId, limit);
+    }
+}
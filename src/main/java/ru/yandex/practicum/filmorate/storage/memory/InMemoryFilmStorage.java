@@ -0,0 +1,174 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.RatingMpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+import ru.yandex.practicum.filmorate.storage.film.FilmFacets;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// FilmStorage без SQL на пути запроса. Названия жанров и рейтингов, как и в FilmDbStorage,
+// берутся из справочников в памяти; каждый вызов возвращает новый объект Film
+@Repository
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "memory")
+@RequiredArgsConstructor
+public class InMemoryFilmStorage implements FilmStorage {
+
+    private final InMemoryStore store;
+    private final GenreDbStorage genreStorage;
+    private final RatingMpaDbStorage ratingMpaStorage;
+
+    @Override
+    public Film createFilm(Film film) {
+        FilmRow row = toRow(film);
+        film.setId(store.nextFilmId());
+        store.putFilm(new FilmRow(film.getId(), row.name(), row.description(), row.duration(), row.releaseDate(),
+                row.mpaId(), row.genreIds(), 0));
+        return film;
+    }
+
+    @Override
+    public List<Film> createFilms(List<Film> films) {
+        for (Film film : films) {
+            createFilm(film);
+        }
+        return films;
+    }
+
+    @Override
+    public Film updateFilm(Film film) {
+        FilmRow row = toRow(film);
+        FilmRow updated = store.updateFilm(new FilmRow(film.getId(), row.name(), row.description(), row.duration(),
+                row.releaseDate(), row.mpaId(), row.genreIds(), 0));
+        if (updated == null) {
+            throw new NotFoundException("Movie with ID = " + film.getId() + " not found");
+        }
+        return toFilm(updated);
+    }
+
+    @Override
+    public Film getFilmById(int filmId) {
+        FilmRow row = store.getFilm(filmId);
+        if (row == null) {
+            throw new NotFoundException("Movie with ID = " + filmId + " not found");
+        }
+        return toFilm(row);
+    }
+
+    @Override
+    public boolean existsById(int filmId) {
+        return store.getFilm(filmId) != null;
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return toFilms(store.getFilms());
+    }
+
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        return toFilms(store.getFilms(afterId, limit));
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> filmIds) {
+        List<Film> films = new ArrayList<>(filmIds.size());
+        for (Integer filmId : filmIds) {
+            FilmRow row = store.getFilm(filmId);
+            if (row != null) {
+                films.add(toFilm(row));
+            }
+        }
+        return films;
+    }
+
+    @Override
+    public void removeFilm(int filmId) {
+        store.removeFilm(filmId);
+    }
+
+    // Полный проход по фильмам, как ORDER BY like_count в FilmDbStorage; быстрый путь — PopularFilmsIndex
+    @Override
+    public List<Film> getMostPopularFilms(int count) {
+        List<FilmRow> rows = new ArrayList<>(store.getFilms());
+        Map<Integer, Integer> likeCounts = new HashMap<>();
+        for (FilmRow row : rows) {
+            likeCounts.put(row.id(), store.getLikeCount(row.id()));
+        }
+        rows.sort(Comparator.comparing((FilmRow row) -> likeCounts.get(row.id())).reversed()
+                .thenComparingInt(FilmRow::id));
+        return toFilms(rows.subList(0, Math.min(count, rows.size())));
+    }
+
+    @Override
+    public Map<Integer, FilmFacets> getFilmFacets() {
+        Map<Integer, FilmFacets> facets = new HashMap<>();
+        for (FilmRow row : store.getFilms()) {
+            int year = row.releaseDate() == null ? 0 : row.releaseDate().getYear();
+            facets.put(row.id(), new FilmFacets(year, Set.copyOf(Arrays.stream(row.genreIds()).boxed().toList()),
+                    row.version()));
+        }
+        return facets;
+    }
+
+    // Неизвестные жанр и рейтинг отклоняют запись тем же исключением, что и внешние ключи в базе,
+    // поэтому клиент получает 400 при любом движке хранения
+    private FilmRow toRow(Film film) {
+        int mpaId = film.getMpa().getId();
+        if (ratingMpaStorage.findRatingMpa(mpaId).getName() == null) {
+            throw new DataIntegrityViolationException("MPA rating with ID = " + mpaId + " not found");
+        }
+        int[] genreIds = film.getGenres() == null
+                ? SortedIntArrays.EMPTY
+                : film.getGenres().stream().mapToInt(Genre::getId).distinct().sorted().toArray();
+        for (int genreId : genreIds) {
+            if (genreStorage.findGenre(genreId).getName() == null) {
+                throw new DataIntegrityViolationException("Genre with ID = " + genreId + " not found");
+            }
+        }
+        return new FilmRow(film.getId(), film.getName(), film.getDescription(), film.getDuration(),
+                film.getReleaseDate(), mpaId, genreIds, 0);
+    }
+
+    private List<Film> toFilms(Collection<FilmRow> rows) {
+        List<Film> films = new ArrayList<>(rows.size());
+        for (FilmRow row : rows) {
+            films.add(toFilm(row));
+        }
+        return films;
+    }
+
+    private Film toFilm(FilmRow row) {
+        Set<Genre> genres = new TreeSet<>(Comparator.comparing(Genre::getId));
+        for (int genreId : row.genreIds()) {
+            genres.add(genreStorage.findGenre(genreId));
+        }
+        Film film = Film.builder()
+                .id(row.id())
+                .name(row.name())
+                .description(row.description())
+                .duration(row.duration())
+                .releaseDate(row.releaseDate())
+                .mpa(ratingMpaStorage.findRatingMpa(row.mpaId()))
+                .genres(genres)
+                .build();
+        film.setVersion(row.version());
+        return film;
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.like.LikePair;
+import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// LikeStorage без SQL: счётчик лайков — длина массива id пользователей, поэтому он не расходится с лайками
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "memory")
+@RequiredArgsConstructor
+public class InMemoryLikeStorage implements LikeStorage {
+
+    private final InMemoryStore store;
+    private final InMemoryFilmStorage filmStorage;
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        return store.addLike(filmId, userId);
+    }
+
+    @Override
+    public boolean deleteLike(int filmId, int userId) {
+        return store.removeLike(filmId, userId);
+    }
+
+    @Override
+    public List<LikePair> addLikes(List<LikePair> likes) {
+        List<LikePair> added = new ArrayList<>();
+        for (LikePair like : likes) {
+            if (store.addLike(like.filmId(), like.userId())) {
+                added.add(like);
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public List<LikePair> deleteLikes(List<LikePair> likes) {
+        List<LikePair> deleted = new ArrayList<>();
+        for (LikePair like : likes) {
+            if (store.removeLike(like.filmId(), like.userId())) {
+                deleted.add(like);
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Film> getPopular(Integer count) {
+        return filmStorage.getMostPopularFilms(count);
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikeCounts() {
+        Map<Integer, Integer> likeCounts = new HashMap<>();
+        for (FilmRow film : store.getFilms()) {
+            likeCounts.put(film.id(), store.getLikeCount(film.id()));
+        }
+        return likeCounts;
+    }
+
+    @Override
+    public void forEachLike(Consumer<LikePair> action) {
+        store.forEachLike((filmId, userId) -> action.accept(new LikePair(filmId, userId)));
+    }
+
+    // Счётчики не хранятся отдельно от лайков, чинить нечего
+    @Override
+    public int repairLikeCounts() {
+        return 0;
+    }
+}
@@ -0,0 +1,389 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+import ru.yandex.practicum.filmorate.storage.user.FriendsGraph;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Данные движка хранения в памяти (filmorate.storage.engine=memory), общие для хранилищ фильмов,
+// пользователей, лайков и событий ленты. Фильмы и пользователи лежат в упорядоченных по id картах, которые читаются
+// без блокировок; лайки фильма — отсортированный массив id пользователей, пересоздаваемый при изменении.
+// Изменения одного id сериализуются блокировкой из набора STRIPES, так что запись разных фильмов идёт
+// параллельно. Если задан filmorate.storage.memory.data-dir, каждое изменение пишется в журнал
+// до того, как применяется в памяти, а раз в snapshot-interval снимается снимок; при старте загружается
+// снимок и проигрывается журнал
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "memory")
+public class InMemoryStore {
+
+    private static final int STRIPES = 64;
+
+    private final ConcurrentSkipListMap<Integer, FilmRow> films = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, UserRow> users = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Integer, int[]> likesByFilm = new ConcurrentHashMap<>();
+    private final FriendsGraph friendsGraph = new FriendsGraph();
+    private final AtomicInteger lastFilmId = new AtomicInteger();
+    private final AtomicInteger lastUserId = new AtomicInteger();
+    private final ConcurrentHashMap<Integer, ConcurrentSkipListMap<Long, Event>> eventsByUser =
+            new ConcurrentHashMap<>();
+    private final AtomicLong lastEventId = new AtomicLong();
+    private final Object[] stripes = new Object[STRIPES];
+    // id событий всех пользователей берутся из одной последовательности, поэтому пакеты пишутся по очереди
+    private final Object eventLock = new Object();
+    // Изменения берут блокировку на чтение, а смена сегмента журнала перед снимком — на запись:
+    // всё, что попало в старый сегмент, к началу снимка уже применено
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final Path dataDirectory;
+    private final boolean syncWrites;
+    private WriteAheadLog wal;
+
+    // Без журнала, например в бенчмарках
+    public InMemoryStore() {
+        this("", false);
+    }
+
+    @Autowired
+    public InMemoryStore(@Value("${filmorate.storage.memory.data-dir:}") String dataDirectory,
+                         @Value("${filmorate.storage.memory.sync-writes:true}") boolean syncWrites) {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        this.dataDirectory = dataDirectory.isBlank() ? null : Path.of(dataDirectory);
+        this.syncWrites = syncWrites;
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        if (dataDirectory == null) {
+            return;
+        }
+        long started = System.nanoTime();
+        Files.createDirectories(dataDirectory);
+        long firstSegment = StoreSnapshots.readLatest(dataDirectory, this);
+        long lastSegment = WriteAheadLog.replay(dataDirectory, firstSegment,
+                record -> StoreRecords.apply(record, this));
+        wal = new WriteAheadLog(dataDirectory, Math.max(firstSegment, lastSegment + 1));
+        log.info("Хранилище в памяти восстановлено за {} мс: {} фильмов, {} пользователей",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), films.size(), users.size());
+    }
+
+    // Снимок снимается параллельно с записью: записи журнала идемпотентны, и те из них, что уже
+    // попали в снимок, при восстановлении просто применятся ещё раз
+    @Scheduled(fixedDelayString = "${filmorate.storage.memory.snapshot-interval-ms:600000}",
+            initialDelayString = "${filmorate.storage.memory.snapshot-interval-ms:600000}")
+    public synchronized void checkpoint() {
+        if (wal == null) {
+            return;
+        }
+        try {
+            long started = System.nanoTime();
+            long segment;
+            checkpointLock.writeLock().lock();
+            try {
+                segment = wal.rotate();
+            } finally {
+                checkpointLock.writeLock().unlock();
+            }
+            StoreSnapshots.write(dataDirectory, this, segment);
+            wal.deleteSegmentsBefore(StoreSnapshots.deleteOlderThanPrevious(dataDirectory));
+            log.info("Снимок хранилища в памяти записан за {} мс",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (IOException e) {
+            log.error("Не удалось записать снимок хранилища в памяти", e);
+        }
+    }
+
+    // Дописывает очередь журнала; снимок при остановке не снимается, при старте журнал просто проиграется
+    @PreDestroy
+    public void close() throws IOException {
+        if (wal != null) {
+            wal.close();
+        }
+    }
+
+    int nextFilmId() {
+        return lastFilmId.incrementAndGet();
+    }
+
+    int nextUserId() {
+        return lastUserId.incrementAndGet();
+    }
+
+    int getLastFilmId() {
+        return lastFilmId.get();
+    }
+
+    int getLastUserId() {
+        return lastUserId.get();
+    }
+
+    void restoreSequences(int filmId, int userId) {
+        lastFilmId.accumulateAndGet(filmId, Math::max);
+        lastUserId.accumulateAndGet(userId, Math::max);
+    }
+
+    FilmRow getFilm(int filmId) {
+        return films.get(filmId);
+    }
+
+    Collection<FilmRow> getFilms() {
+        return Collections.unmodifiableCollection(films.values());
+    }
+
+    List<FilmRow> getFilms(int afterId, int limit) {
+        return firstValues(films.tailMap(afterId, false).values(), limit);
+    }
+
+    void putFilm(FilmRow film) {
+        mutate(film.id(), journal -> {
+            journal.accept(StoreRecords.putFilm(film));
+            films.put(film.id(), film);
+            lastFilmId.accumulateAndGet(film.id(), Math::max);
+            return null;
+        });
+    }
+
+    // Возвращает null, если фильма нет; версия увеличивается под блокировкой id
+    FilmRow updateFilm(FilmRow film) {
+        return mutate(film.id(), journal -> {
+            FilmRow current = films.get(film.id());
+            if (current == null) {
+                return null;
+            }
+            FilmRow updated = film.withVersion(current.version() + 1);
+            journal.accept(StoreRecords.putFilm(updated));
+            films.put(film.id(), updated);
+            return updated;
+        });
+    }
+
+    // Лайки удаляются вместе с фильмом; addLike проверяет наличие фильма под той же блокировкой
+    boolean removeFilm(int filmId) {
+        return mutate(filmId, journal -> {
+            if (!films.containsKey(filmId)) {
+                likesByFilm.remove(filmId);
+                return false;
+            }
+            journal.accept(StoreRecords.removeFilm(filmId));
+            likesByFilm.remove(filmId);
+            films.remove(filmId);
+            return true;
+        });
+    }
+
+    boolean addLike(int filmId, int userId) {
+        return mutate(filmId, journal -> {
+            if (!films.containsKey(filmId)) {
+                return false;
+            }
+            int[] userIds = likesByFilm.get(filmId);
+            int[] updated = SortedIntArrays.insert(userIds, userId);
+            if (updated == userIds) {
+                return false;
+            }
+            journal.accept(StoreRecords.addLike(filmId, userId));
+            likesByFilm.put(filmId, updated);
+            return true;
+        });
+    }
+
+    boolean removeLike(int filmId, int userId) {
+        return mutate(filmId, journal -> {
+            int[] userIds = likesByFilm.get(filmId);
+            if (userIds == null) {
+                return false;
+            }
+            int[] updated = SortedIntArrays.remove(userIds, userId);
+            if (updated == userIds) {
+                return false;
+            }
+            journal.accept(StoreRecords.removeLike(filmId, userId));
+            if (updated == null) {
+                likesByFilm.remove(filmId);
+            } else {
+                likesByFilm.put(filmId, updated);
+            }
+            return true;
+        });
+    }
+
+    void restoreLikes(int filmId, int[] userIds) {
+        likesByFilm.put(filmId, userIds);
+    }
+
+    int getLikeCount(int filmId) {
+        return likesByFilm.getOrDefault(filmId, SortedIntArrays.EMPTY).length;
+    }
+
+    void forEachLike(BiConsumer<Integer, Integer> action) {
+        likesByFilm.forEach((filmId, userIds) -> {
+            for (int userId : userIds) {
+                action.accept(filmId, userId);
+            }
+        });
+    }
+
+    void forEachLikedFilm(BiConsumer<Integer, int[]> action) {
+        likesByFilm.forEach(action);
+    }
+
+    UserRow getUser(int userId) {
+        return users.get(userId);
+    }
+
+    Collection<UserRow> getUsers() {
+        return Collections.unmodifiableCollection(users.values());
+    }
+
+    List<UserRow> getUsers(int afterId, int limit) {
+        return firstValues(users.tailMap(afterId, false).values(), limit);
+    }
+
+    void putUser(UserRow user) {
+        mutate(user.id(), journal -> {
+            journal.accept(StoreRecords.putUser(user));
+            users.put(user.id(), user);
+            lastUserId.accumulateAndGet(user.id(), Math::max);
+            return null;
+        });
+    }
+
+    // Возвращает null, если пользователя нет
+    UserRow updateUser(UserRow user) {
+        return mutate(user.id(), journal -> {
+            if (!users.containsKey(user.id())) {
+                return null;
+            }
+            journal.accept(StoreRecords.putUser(user));
+            users.put(user.id(), user);
+            return user;
+        });
+    }
+
+    boolean addFriend(int userId, int friendId) {
+        return mutate(userId, journal -> {
+            if (friendsGraph.isFriend(userId, friendId)) {
+                return false;
+            }
+            journal.accept(StoreRecords.addFriend(userId, friendId));
+            friendsGraph.addFriend(userId, friendId);
+            return true;
+        });
+    }
+
+    boolean removeFriend(int userId, int friendId) {
+        return mutate(userId, journal -> {
+            if (!friendsGraph.isFriend(userId, friendId)) {
+                return false;
+            }
+            journal.accept(StoreRecords.removeFriend(userId, friendId));
+            friendsGraph.removeFriend(userId, friendId);
+            return true;
+        });
+    }
+
+    FriendsGraph getFriendsGraph() {
+        return friendsGraph;
+    }
+
+    // Пакет уходит в журнал одной записью: он применяется целиком или не применяется вовсе,
+    // и при повторе по одному события не задвоятся
+    void addEvents(List<Event> events) {
+        mutate(eventLock, journal -> {
+            List<Event> numbered = new ArrayList<>(events.size());
+            long eventId = lastEventId.get();
+            for (Event event : events) {
+                numbered.add(new Event(++eventId, event.getUserId(), event.getEventType(), event.getOperation(),
+                        event.getEntityId(), event.getTimestamp()));
+            }
+            journal.accept(StoreRecords.addEvents(numbered));
+            numbered.forEach(this::restoreEvent);
+            return null;
+        });
+    }
+
+    void restoreEvent(Event event) {
+        eventsByUser.computeIfAbsent(event.getUserId(), id -> new ConcurrentSkipListMap<>())
+                .put(event.getEventId(), event);
+        lastEventId.accumulateAndGet(event.getEventId(), Math::max);
+    }
+
+    List<Event> getEvents(int userId, long afterId, int limit) {
+        ConcurrentSkipListMap<Long, Event> events = eventsByUser.get(userId);
+        return events == null ? List.of() : firstValues(events.tailMap(afterId, false).values(), limit);
+    }
+
+    void forEachEvent(Consumer<Event> action) {
+        eventsByUser.values().forEach(events -> events.values().forEach(action));
+    }
+
+    // Запись ставится в очередь журнала под блокировкой id, поэтому порядок записей одного id в журнале
+    // совпадает с порядком изменений. При sync-writes изменение применяется в памяти только после fsync,
+    // и блокировка id держится до него: если запись не удалась, исключение вылетает до изменения памяти,
+    // и читатели не видят данных, которых нет в журнале. Изменения разных id по-прежнему попадают
+    // в общий group commit
+    private <T> T mutate(int id, Function<Consumer<byte[]>, T> change) {
+        return mutate(stripes[Math.floorMod(id, STRIPES)], change);
+    }
+
+    private <T> T mutate(Object lock, Function<Consumer<byte[]>, T> change) {
+        WriteAheadLog journal = wal;
+        if (journal == null) {
+            synchronized (lock) {
+                return change.apply(record -> {
+                });
+            }
+        }
+        checkpointLock.readLock().lock();
+        try {
+            synchronized (lock) {
+                return change.apply(record -> {
+                    CompletableFuture<Void> written = journal.append(record);
+                    if (syncWrites || written.isCompletedExceptionally()) {
+                        WriteAheadLog.await(written);
+                    }
+                });
+            }
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    private static <T> List<T> firstValues(Collection<T> values, int limit) {
+        List<T> result = new ArrayList<>(Math.min(limit, 1024));
+        for (T value : values) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(value);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// UserStorage без SQL на пути запроса; дружба хранится в том же FriendsGraph, что и у UserDbStorage
+@Repository
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "memory")
+@RequiredArgsConstructor
+public class InMemoryUserStorage implements UserStorage {
+
+    private final InMemoryStore store;
+
+    @Override
+    public User createUser(User user) {
+        user.setId(store.nextUserId());
+        store.putUser(toRow(user));
+        return user;
+    }
+
+    @Override
+    public List<User> createUsers(List<User> users) {
+        for (User user : users) {
+            createUser(user);
+        }
+        return users;
+    }
+
+    @Override
+    public User updateUser(User user) {
+        if (store.updateUser(toRow(user)) == null) {
+            throw new NotFoundException("User with ID=" + user.getId() + " not found!");
+        }
+        return user;
+    }
+
+    @Override
+    public User getUserById(int userId) {
+        UserRow row = store.getUser(userId);
+        if (row == null) {
+            throw new NotFoundException("User with ID=" + userId + " not found!");
+        }
+        return toUser(row);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return toUsers(store.getUsers());
+    }
+
+    @Override
+    public List<User> getUsers(int afterId, int limit) {
+        return toUsers(store.getUsers(afterId, limit));
+    }
+
+    // Как и UserDbStorage, только возвращает текст запроса удаления и ничего не удаляет
+    @Override
+    public String delete(int userId) {
+        return "DELETE FROM users WHERE user_id = " + userId;
+    }
+
+    @Override
+    public boolean addFriend(int userId, int friendId) {
+        return store.addFriend(userId, friendId);
+    }
+
+    @Override
+    public boolean removeFriend(int userId, int friendId) {
+        return store.removeFriend(userId, friendId);
+    }
+
+    @Override
+    public List<User> getFriends(int userId) {
+        return getUsersByIds(store.getFriendsGraph().getFriendIds(userId));
+    }
+
+    @Override
+    public List<User> getCommonFriends(int friend1, int friend2) {
+        return getUsersByIds(store.getFriendsGraph().getCommonFriendIds(friend1, friend2));
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(int userId, int limit) {
+        List<User> suggestions = new ArrayList<>();
+        for (Integer suggestionId : store.getFriendsGraph().getFriendSuggestionIds(userId, limit)) {
+            UserRow row = store.getUser(suggestionId);
+            if (row != null) {
+                suggestions.add(toUser(row));
+            }
+        }
+        return suggestions;
+    }
+
+    @Override
+    public boolean isFriend(int userId, int friendId) {
+        return store.getFriendsGraph().isFriend(userId, friendId);
+    }
+
+    private List<User> getUsersByIds(int[] userIds) {
+        List<User> users = new ArrayList<>(userIds.length);
+        for (int userId : userIds) {
+            UserRow row = store.getUser(userId);
+            if (row != null) {
+                users.add(toUser(row));
+            }
+        }
+        return users;
+    }
+
+    private static List<User> toUsers(Collection<UserRow> rows) {
+        List<User> users = new ArrayList<>(rows.size());
+        for (UserRow row : rows) {
+            users.add(toUser(row));
+        }
+        return users;
+    }
+
+    private static UserRow toRow(User user) {
+        return new UserRow(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+    }
+
+    private static User toUser(UserRow row) {
+        return User.builder()
+                .id(row.id())
+                .email(row.email())
+                .login(row.login())
+                .name(row.name())
+                .birthday(row.birthday())
+                .build();
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+// Двоичное представление строк фильмов, пользователей и событий, общее для журнала и снимков.
+// Пишется через DataOutput (big-endian), читается из ByteBuffer, в том числе отображённого в память
+final class StoreCodec {
+
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
+    private StoreCodec() {
+    }
+
+    static void writeFilm(DataOutput out, FilmRow film) throws IOException {
+        out.writeInt(film.id());
+        writeString(out, film.name());
+        writeString(out, film.description());
+        out.writeLong(film.duration() == null ? NO_VALUE : film.duration());
+        writeDate(out, film.releaseDate());
+        out.writeInt(film.mpaId());
+        writeInts(out, film.genreIds());
+        out.writeLong(film.version());
+    }
+
+    static FilmRow readFilm(ByteBuffer in) {
+        int id = in.getInt();
+        String name = readString(in);
+        String description = readString(in);
+        long duration = in.getLong();
+        LocalDate releaseDate = readDate(in);
+        int mpaId = in.getInt();
+        int[] genreIds = readInts(in);
+        long version = in.getLong();
+        return new FilmRow(id, name, description, duration == NO_VALUE ? null : duration, releaseDate,
+                mpaId, genreIds, version);
+    }
+
+    static void writeUser(DataOutput out, UserRow user) throws IOException {
+        out.writeInt(user.id());
+        writeString(out, user.email());
+        writeString(out, user.login());
+        writeString(out, user.name());
+        writeDate(out, user.birthday());
+    }
+
+    static UserRow readUser(ByteBuffer in) {
+        return new UserRow(in.getInt(), readString(in), readString(in), readString(in), readDate(in));
+    }
+
+    static void writeEvent(DataOutput out, Event event) throws IOException {
+        out.writeLong(event.getEventId());
+        out.writeInt(event.getUserId());
+        writeString(out, event.getEventType().name());
+        writeString(out, event.getOperation().name());
+        out.writeInt(event.getEntityId());
+        out.writeLong(event.getTimestamp());
+    }
+
+    static Event readEvent(ByteBuffer in) {
+        return new Event(in.getLong(), in.getInt(), Event.EventType.valueOf(readString(in)),
+                Event.Operation.valueOf(readString(in)), in.getInt(), in.getLong());
+    }
+
+    static void writeInts(DataOutput out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    static int[] readInts(ByteBuffer in) {
+        int[] values = new int[in.getInt()];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + values.length * Integer.BYTES);
+        return values;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeLong(date == null ? NO_VALUE : date.toEpochDay());
+    }
+
+    private static LocalDate readDate(ByteBuffer in) {
+        long epochDay = in.getLong();
+        return epochDay == NO_VALUE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
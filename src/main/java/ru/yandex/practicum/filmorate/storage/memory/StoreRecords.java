@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import ru.yandex.practicum.filmorate.model.Event;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// Записи журнала изменений. Каждая запись описывает итоговое состояние ключа, а не разницу:
+// изменение фильма пишется целой строкой с новой версией, лайк — как «лайк есть» или «лайка нет».
+// Поэтому повторное применение записи безопасно, и снимок может сниматься без остановки записи
+final class StoreRecords {
+
+    private static final byte PUT_FILM = 1;
+    private static final byte REMOVE_FILM = 2;
+    private static final byte ADD_LIKE = 3;
+    private static final byte REMOVE_LIKE = 4;
+    private static final byte PUT_USER = 5;
+    private static final byte ADD_FRIEND = 6;
+    private static final byte REMOVE_FRIEND = 7;
+    private static final byte ADD_EVENTS = 8;
+
+    private StoreRecords() {
+    }
+
+    static byte[] putFilm(FilmRow film) {
+        return encode(PUT_FILM, out -> StoreCodec.writeFilm(out, film));
+    }
+
+    static byte[] removeFilm(int filmId) {
+        return encode(REMOVE_FILM, out -> out.writeInt(filmId));
+    }
+
+    static byte[] addLike(int filmId, int userId) {
+        return encode(ADD_LIKE, out -> writePair(out, filmId, userId));
+    }
+
+    static byte[] removeLike(int filmId, int userId) {
+        return encode(REMOVE_LIKE, out -> writePair(out, filmId, userId));
+    }
+
+    static byte[] putUser(UserRow user) {
+        return encode(PUT_USER, out -> StoreCodec.writeUser(out, user));
+    }
+
+    static byte[] addFriend(int userId, int friendId) {
+        return encode(ADD_FRIEND, out -> writePair(out, userId, friendId));
+    }
+
+    static byte[] removeFriend(int userId, int friendId) {
+        return encode(REMOVE_FRIEND, out -> writePair(out, userId, friendId));
+    }
+
+    // События пишутся уже с id, так что повторное применение пакета их не задваивает
+    static byte[] addEvents(List<Event> events) {
+        return encode(ADD_EVENTS, out -> {
+            out.writeInt(events.size());
+            for (Event event : events) {
+                StoreCodec.writeEvent(out, event);
+            }
+        });
+    }
+
+    // Вызывается при восстановлении, когда журнал ещё не открыт, поэтому изменения повторно не пишутся
+    static void apply(ByteBuffer record, InMemoryStore store) {
+        byte type = record.get();
+        switch (type) {
+            case PUT_FILM -> store.putFilm(StoreCodec.readFilm(record));
+            case REMOVE_FILM -> store.removeFilm(record.getInt());
+            case ADD_LIKE -> store.addLike(record.getInt(), record.getInt());
+            case REMOVE_LIKE -> store.removeLike(record.getInt(), record.getInt());
+            case PUT_USER -> store.putUser(StoreCodec.readUser(record));
+            case ADD_FRIEND -> store.addFriend(record.getInt(), record.getInt());
+            case REMOVE_FRIEND -> store.removeFriend(record.getInt(), record.getInt());
+            case ADD_EVENTS -> {
+                for (int count = record.getInt(); count > 0; count--) {
+                    store.restoreEvent(StoreCodec.readEvent(record));
+                }
+            }
+            default -> throw new IllegalStateException("Неизвестный тип записи журнала: " + type);
+        }
+    }
+
+    private static void writePair(DataOutputStream out, int first, int second) throws IOException {
+        out.writeInt(first);
+        out.writeInt(second);
+    }
+
+    private static byte[] encode(byte type, RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,207 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Снимки InMemoryStore в файлах snapshot-<номер сегмента журнала>.bin: после загрузки снимка журнал
+// проигрывается начиная с этого сегмента. Разделы фильмов, пользователей, лайков, друзей и событий
+// заканчиваются нулевым id, в конце файла — CRC32. Снимки первого формата, без событий, тоже читаются.
+// Снимок читается через отображение файла в память
+@Slf4j
+final class StoreSnapshots {
+
+    private static final int MAGIC = 0x46534e50;
+    private static final int FORMAT = 2;
+    private static final int FORMAT_WITHOUT_EVENTS = 1;
+    private static final int END = 0;
+
+    private StoreSnapshots() {
+    }
+
+    static void write(Path directory, InMemoryStore store, long walSegment) throws IOException {
+        Path temporary = directory.resolve("snapshot.tmp");
+        CRC32 crc = new CRC32();
+        try (CheckedOutputStream checked = new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16), crc);
+             DataOutputStream out = new DataOutputStream(checked)) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(walSegment);
+            out.writeInt(store.getLastFilmId());
+            out.writeInt(store.getLastUserId());
+            for (FilmRow film : store.getFilms()) {
+                StoreCodec.writeFilm(out, film);
+            }
+            out.writeInt(END);
+            for (UserRow user : store.getUsers()) {
+                StoreCodec.writeUser(out, user);
+            }
+            out.writeInt(END);
+            writeSets(out, store::forEachLikedFilm);
+            writeSets(out, store.getFriendsGraph()::forEach);
+            writeEvents(out, store);
+            out.flush();
+            out.writeInt((int) crc.getValue());
+        }
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(fileName(walSegment)), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Загружает самый свежий целый снимок и возвращает его сегмент журнала, либо 0, если снимков нет
+    static long readLatest(Path directory, InMemoryStore store) throws IOException {
+        List<Path> snapshots = list(directory);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path path = snapshots.get(i);
+            try {
+                long walSegment = read(path, store);
+                log.info("Загружен снимок {}", path.getFileName());
+                return walSegment;
+            } catch (IllegalStateException e) {
+                log.warn("Снимок {} повреждён и пропущен: {}", path.getFileName(), e.getMessage());
+            }
+        }
+        return 0;
+    }
+
+    // Оставляет последний и предыдущий снимки: если последний окажется повреждён, восстановимся с предыдущего.
+    // Возвращает сегмент журнала, начиная с которого сегменты ещё нужны
+    static long deleteOlderThanPrevious(Path directory) throws IOException {
+        List<Path> snapshots = list(directory);
+        if (snapshots.size() < 2) {
+            return snapshots.isEmpty() ? 0 : walSegment(snapshots.get(0));
+        }
+        for (Path path : snapshots.subList(0, snapshots.size() - 2)) {
+            Files.delete(path);
+        }
+        return walSegment(snapshots.get(snapshots.size() - 2));
+    }
+
+    private static long read(Path path, InMemoryStore store) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int bodySize = buffer.limit() - Integer.BYTES;
+            if (bodySize < 0) {
+                throw new IllegalStateException("файл обрезан");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, bodySize));
+            if ((int) crc.getValue() != buffer.getInt(bodySize)) {
+                throw new IllegalStateException("контрольная сумма не совпадает");
+            }
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalStateException("неизвестный формат");
+            }
+            int format = buffer.getInt();
+            if (format != FORMAT && format != FORMAT_WITHOUT_EVENTS) {
+                throw new IllegalStateException("неизвестный формат");
+            }
+            long walSegment = buffer.getLong();
+            int lastFilmId = buffer.getInt();
+            int lastUserId = buffer.getInt();
+            while (buffer.getInt(buffer.position()) != END) {
+                store.putFilm(StoreCodec.readFilm(buffer));
+            }
+            buffer.getInt();
+            while (buffer.getInt(buffer.position()) != END) {
+                store.putUser(StoreCodec.readUser(buffer));
+            }
+            buffer.getInt();
+            readSets(buffer).forEach(store::restoreLikes);
+            store.getFriendsGraph().rebuild(readSets(buffer));
+            if (format != FORMAT_WITHOUT_EVENTS) {
+                while (buffer.getLong(buffer.position()) != END) {
+                    store.restoreEvent(StoreCodec.readEvent(buffer));
+                }
+                buffer.getLong();
+            }
+            store.restoreSequences(lastFilmId, lastUserId);
+            return walSegment;
+        } catch (RuntimeException e) {
+            if (e instanceof IllegalStateException) {
+                throw e;
+            }
+            throw new IllegalStateException(e.toString(), e);
+        }
+    }
+
+    private static void writeSets(DataOutputStream out, SetSource source) throws IOException {
+        try {
+            source.forEach((id, values) -> {
+                try {
+                    out.writeInt(id);
+                    StoreCodec.writeInts(out, values);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.writeInt(END);
+    }
+
+    private static void writeEvents(DataOutputStream out, InMemoryStore store) throws IOException {
+        try {
+            store.forEachEvent(event -> {
+                try {
+                    StoreCodec.writeEvent(out, event);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.writeLong(END);
+    }
+
+    private static Map<Integer, int[]> readSets(ByteBuffer in) {
+        Map<Integer, int[]> sets = new HashMap<>();
+        for (int id = in.getInt(); id != END; id = in.getInt()) {
+            sets.put(id, StoreCodec.readInts(in));
+        }
+        return sets;
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().matches("snapshot-\\d+\\.bin"))
+                    .sorted((first, second) -> Long.compare(walSegment(first), walSegment(second)))
+                    .toList();
+        }
+    }
+
+    private static long walSegment(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring("snapshot-".length(), name.length() - ".bin".length()));
+    }
+
+    private static String fileName(long walSegment) {
+        return "snapshot-" + walSegment + ".bin";
+    }
+
+    @FunctionalInterface
+    private interface SetSource {
+        void forEach(BiConsumer<Integer, int[]> action);
+    }
+}
@@ -0,0 +1,6 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import java.time.LocalDate;
+
+record UserRow(int id, String email, String login, String name, LocalDate birthday) {
+}
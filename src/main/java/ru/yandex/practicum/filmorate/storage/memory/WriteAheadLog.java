@@ -0,0 +1,261 @@
+package ru.yandex.practicum.filmorate.storage.memory;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Журнал изменений InMemoryStore, разбитый на сегменты wal-<номер>.log. Записи из разных потоков
+// копятся в очереди, а поток записи сбрасывает всё накопившееся одним write и одним force (group commit),
+// после чего завершает их CompletableFuture. Формат записи: длина, CRC32 и содержимое;
+// при восстановлении недописанный хвост последнего сегмента отбрасывается, а повреждённая запись
+// в более раннем сегменте останавливает восстановление. После ошибки записи журнал больше ничего
+// не дописывает: новая запись легла бы за половину кадра и пропала бы при восстановлении
+@Slf4j
+final class WriteAheadLog implements AutoCloseable {
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final Path directory;
+    private final Object queueLock = new Object();
+    private final Object ioLock = new Object();
+    private final Thread writer;
+    private List<byte[]> pendingRecords = new ArrayList<>();
+    private List<CompletableFuture<Void>> pendingFutures = new ArrayList<>();
+    private FileChannel segment;
+    private long segmentId;
+    private volatile boolean running = true;
+    private volatile IOException failure;
+
+    WriteAheadLog(Path directory, long segmentId) throws IOException {
+        this.directory = directory;
+        this.segmentId = segmentId;
+        this.segment = openSegment(segmentId);
+        this.writer = new Thread(this::writeLoop, "wal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    CompletableFuture<Void> append(byte[] record) {
+        if (failure != null) {
+            return CompletableFuture.failedFuture(stopped());
+        }
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        synchronized (queueLock) {
+            pendingRecords.add(record);
+            pendingFutures.add(written);
+            queueLock.notify();
+        }
+        return written;
+    }
+
+    static void await(CompletableFuture<Void> written) {
+        try {
+            written.join();
+        } catch (CompletionException e) {
+            throw new UncheckedIOException("Не удалось записать журнал изменений", (IOException) e.getCause());
+        }
+    }
+
+    // Дописывает очередь в текущий сегмент и начинает следующий; возвращает номер нового сегмента.
+    // Все записи, поставленные в очередь до вызова, окажутся в старом сегменте
+    long rotate() throws IOException {
+        synchronized (ioLock) {
+            flush(takePending());
+            if (failure != null) {
+                throw stopped();
+            }
+            segment.close();
+            segmentId++;
+            segment = openSegment(segmentId);
+            return segmentId;
+        }
+    }
+
+    // Сегменты с номером меньше firstNeeded уже учтены в снимке
+    void deleteSegmentsBefore(long firstNeeded) throws IOException {
+        for (Path path : listSegments(directory)) {
+            if (segmentId(path) < firstNeeded) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    // Проигрывает записи сегментов начиная с firstSegment и возвращает номер последнего прочитанного.
+    // Обрезать можно только последний сегмент: за повреждённой записью более раннего идут записи,
+    // которые без неё применились бы поверх пропуска
+    static long replay(Path directory, long firstSegment, Consumer<ByteBuffer> action) throws IOException {
+        List<Path> segments = listSegments(directory).stream()
+                .filter(path -> segmentId(path) >= firstSegment)
+                .toList();
+        long lastSegment = firstSegment - 1;
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            lastSegment = segmentId(path);
+            int records = replaySegment(path, i == segments.size() - 1, action);
+            log.info("Проигран сегмент журнала {}: {} записей", path.getFileName(), records);
+        }
+        return lastSegment;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        synchronized (queueLock) {
+            queueLock.notify();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (ioLock) {
+            flush(takePending());
+            segment.close();
+        }
+    }
+
+    private void writeLoop() {
+        while (running) {
+            synchronized (ioLock) {
+                Pending pending = takePending();
+                if (!pending.records.isEmpty()) {
+                    flush(pending);
+                    continue;
+                }
+            }
+            synchronized (queueLock) {
+                if (pendingRecords.isEmpty() && running) {
+                    try {
+                        queueLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private Pending takePending() {
+        synchronized (queueLock) {
+            Pending pending = new Pending(pendingRecords, pendingFutures);
+            pendingRecords = new ArrayList<>();
+            pendingFutures = new ArrayList<>();
+            return pending;
+        }
+    }
+
+    // Вызывается под ioLock, поэтому порядок записей в файле совпадает с порядком постановки в очередь
+    private void flush(Pending pending) {
+        if (pending.records.isEmpty()) {
+            return;
+        }
+        if (failure != null) {
+            IOException stopped = stopped();
+            pending.futures.forEach(future -> future.completeExceptionally(stopped));
+            return;
+        }
+        try {
+            int size = 0;
+            for (byte[] record : pending.records) {
+                size += HEADER_BYTES + record.length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            CRC32 crc = new CRC32();
+            for (byte[] record : pending.records) {
+                crc.reset();
+                crc.update(record);
+                buffer.putInt(record.length).putInt((int) crc.getValue()).put(record);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            segment.force(false);
+            pending.futures.forEach(future -> future.complete(null));
+        } catch (IOException e) {
+            log.error("Не удалось записать {} записей журнала, журнал остановлен", pending.records.size(), e);
+            failure = e;
+            pending.futures.forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private IOException stopped() {
+        return new IOException("Журнал изменений остановлен после ошибки записи", failure);
+    }
+
+    private FileChannel openSegment(long id) throws IOException {
+        return FileChannel.open(directory.resolve(segmentName(id)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static int replaySegment(Path path, boolean last, Consumer<ByteBuffer> action) throws IOException {
+        int records = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            int valid = 0;
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer record = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                action.accept(record);
+                buffer.position(buffer.position() + length);
+                valid = buffer.position();
+                records++;
+            }
+            if (valid < buffer.limit()) {
+                if (!last) {
+                    throw new IOException("Сегмент журнала " + path.getFileName() + " повреждён на позиции "
+                            + valid + ", а за ним есть более поздние сегменты");
+                }
+                log.warn("Сегмент журнала {} обрезан до {} байт: последняя запись недописана",
+                        path.getFileName(), valid);
+                channel.truncate(valid);
+            }
+        }
+        return records;
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().matches("wal-\\d+\\.log"))
+                    .sorted((first, second) -> Long.compare(segmentId(first), segmentId(second)))
+                    .toList();
+        }
+    }
+
+    private static long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring("wal-".length(), name.length() - ".log".length()));
+    }
+
+    private static String segmentName(long id) {
+        return "wal-" + id + ".log";
+    }
+
+    private record Pending(List<byte[]> records, List<CompletableFuture<Void>> futures) {
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import ru.yandex.practicum.filmorate.storage.SortedIntArrays;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+// Граф дружбы в памяти: для каждого пользователя хранится отсортированный массив id его друзей.
+// Массивы не изменяются после публикации, при добавлении или удалении друга массив пересоздаётся
+public class FriendsGraph {
+
+    private final ConcurrentHashMap<Integer, int[]> friendsByUser = new ConcurrentHashMap<>();
+
+    public void rebuild(Map<Integer, int[]> friends) {
+        friendsByUser.keySet().retainAll(friends.keySet());
+        friends.forEach((userId, friendIds) -> {
+            int[] sorted = friendIds.clone();
+            Arrays.sort(sorted);
+            friendsByUser.put(userId, sorted);
+        });
+    }
+
+    public void forEach(BiConsumer<Integer, int[]> action) {
+        friendsByUser.forEach(action);
+    }
+
+    public void addFriend(int userId, int friendId) {
+        friendsByUser.compute(userId, (id, friendIds) -> SortedIntArrays.insert(friendIds, friendId));
+    }
+
+    public void removeFriend(int userId, int friendId) {
+        friendsByUser.computeIfPresent(userId, (id, friendIds) -> SortedIntArrays.remove(friendIds, friendId));
+    }
+
+    public boolean isFriend(int userId, int friendId) {
+        return SortedIntArrays.contains(getFriendIds(userId), friendId);
+    }
+
+    public int[] getFriendIds(int userId) {
+        return friendsByUser.getOrDefault(userId, SortedIntArrays.EMPTY);
+    }
+
+    public int[] getCommonFriendIds(int userId, int otherId) {
+        return SortedIntArrays.intersect(getFriendIds(userId), getFriendIds(otherId));
+    }
+
+    // Друзья друзей, которые ещё не в друзьях, по убыванию числа общих друзей
+    public List<Integer> getFriendSuggestionIds(int userId, int limit) {
+        int[] friendIds = getFriendIds(userId);
+        Map<Integer, Integer> mutualCounts = new HashMap<>();
+        for (int friendId : friendIds) {
+            for (int candidateId : getFriendIds(friendId)) {
+                if (candidateId != userId && !SortedIntArrays.contains(friendIds, candidateId)) {
+                    mutualCounts.merge(candidateId, 1, Integer::sum);
+                }
+            }
+        }
+        List<Map.Entry<Integer, Integer>> candidates = new ArrayList<>(mutualCounts.entrySet());
+        candidates.sort(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        List<Integer> suggestions = new ArrayList<>(Math.min(limit, candidates.size()));
+        for (int i = 0; i < candidates.size() && i < limit; i++) {
+            suggestions.add(candidates.get(i).getKey());
+        }
+        return suggestions;
+    }
+}
@@ -1,22 +1,65 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.*;
 
 @Repository
+@ConditionalOnProperty(name = "filmorate.storage.engine", havingValue = "jdbc", matchIfMissing = true)
 public class UserDbStorage implements UserStorage {
 
+    private static final String INSERT_USER = "INSERT INTO users (user_name, login, email, birthday) "
+            + "VALUES (?, ?, ?, ?)";
+    // Вставляет строку, только если её нет: число вставленных строк говорит, изменилась ли дружба
+    private static final String MERGE_FRIEND = "MERGE INTO friends USING (VALUES (?, ?)) AS added(user_id, friend_id) "
+            + "ON friends.user_id = added.user_id AND friends.friend_id = added.friend_id "
+            + "WHEN NOT MATCHED THEN INSERT (user_id, friend_id, status) VALUES (added.user_id, added.friend_id, TRUE)";
+
+    // Открытые запросы по ключу проверяются на использование индексов в QueryPlanTests
+    public static final String SELECT_USER_BY_ID = "SELECT * FROM users WHERE user_id = ?";
+    public static final String SELECT_USERS_PAGE = "SELECT * FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?";
+    public static final String SELECT_USERS_BY_IDS = "SELECT * FROM users WHERE user_id = ANY(:userIds) "
+            + "ORDER BY user_id";
+    public static final String UPDATE_USER = "UPDATE users "
+            + "SET user_name = ?, "
+            + "login = ?, "
+            + "email = ?, "
+            + "birthday = ? "
+            + "WHERE user_id = ?";
+    public static final String DELETE_FRIEND = "DELETE FROM friends "
+            + "WHERE user_id = ? AND friend_id = ?";
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final SimpleJdbcInsert userInsert;
+    private final FriendsGraph friendsGraph = new FriendsGraph();
 
     public UserDbStorage(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.userInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("users")
+                .usingColumns("user_name", "login", "email", "birthday")
+                .usingGeneratedKeyColumns("user_id");
     }
 
     @Override
@@ -30,32 +73,59 @@ public class UserDbStorage implements UserStorage {
         return users;
     }
 
+    @Override
+    public List<User> getUsers(int afterId, int limit) {
+        SqlRowSet srs = jdbcTemplate.queryForRowSet(SELECT_USERS_PAGE, afterId, limit);
+        List<User> users = new ArrayList<>();
+        while (srs.next()) {
+            users.add(userMap(srs));
+        }
+        return users;
+    }
+
     @Override
     public User createUser(User user) {
-        Map<String, Object> keys = new SimpleJdbcInsert(this.jdbcTemplate)
-                .withTableName("users")
-                .usingColumns("user_name", "login", "email", "birthday")
-                .usingGeneratedKeyColumns("user_id")
-                .executeAndReturnKeyHolder(Map.of(
-                        "user_name", user.getName(),
-                        "login", user.getLogin(),
-                        "email", user.getEmail(),
-                        "birthday", java.sql.Date.valueOf(user.getBirthday())))
-                .getKeys();
-        user.setId((Integer) keys.get("user_id"));
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("user_name", user.getName())
+                .addValue("login", user.getLogin())
+                .addValue("email", user.getEmail())
+                .addValue("birthday", user.getBirthday());
+        user.setId(userInsert.executeAndReturnKey(params).intValue());
         return user;
     }
 
+    @Override
+    public List<User> createUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        PreparedStatementCreatorFactory factory = new PreparedStatementCreatorFactory(INSERT_USER);
+        factory.setGeneratedKeysColumnNames("user_id");
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(factory.newPreparedStatementCreator(List.of()), new BatchPreparedStatementSetter() {
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                User user = users.get(i);
+                ps.setString(1, user.getName());
+                ps.setString(2, user.getLogin());
+                ps.setString(3, user.getEmail());
+                ps.setObject(4, user.getBirthday());
+            }
+
+            public int getBatchSize() {
+                return users.size();
+            }
+        }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(((Number) keys.get(i).get("user_id")).intValue());
+        }
+        return users;
+    }
+
     @Override
     public User updateUser(User user) {
         getUserById(user.getId());
-        String sqlQuery = "UPDATE users "
-                + "SET user_name = ?, "
-                + "login = ?, "
-                + "email = ?, "
-                + "birthday = ? "
-                + "WHERE user_id = ?";
-        jdbcTemplate.update(sqlQuery, user.getName(), user.getLogin(),
+        jdbcTemplate.update(UPDATE_USER, user.getName(), user.getLogin(),
                 user.getEmail(), user.getBirthday(), user.getId());
         return user;
     }
@@ -68,8 +138,7 @@ public class UserDbStorage implements UserStorage {
 
     @Override
     public User getUserById(int userId) {
-        String sqlQuery = "SELECT * FROM users WHERE user_id = ?";
-        SqlRowSet srs = jdbcTemplate.queryForRowSet(sqlQuery, userId);
+        SqlRowSet srs = jdbcTemplate.queryForRowSet(SELECT_USER_BY_ID, userId);
         if (srs.next()) {
             return userMap(srs);
         } else {
@@ -77,48 +146,80 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
-    public void addFriend(int userId, int friendId) {
-        String sqlQuery = "INSERT INTO friends (user_id, friend_id, status) "
-                + "VALUES(?, ?, ?)";
-        jdbcTemplate.update(sqlQuery, userId, friendId, true);
+    // Дружба хранится в таблице friends, а граф в памяти только дублирует её для быстрых выборок
+    @PostConstruct
+    public void rebuildFriendsGraph() {
+        Map<Integer, List<Integer>> friendIds = new HashMap<>();
+        jdbcTemplate.query("SELECT user_id, friend_id FROM friends", (RowCallbackHandler) rs ->
+                friendIds.computeIfAbsent(rs.getInt("user_id"), id -> new ArrayList<>()).add(rs.getInt("friend_id")));
+        Map<Integer, int[]> friends = new HashMap<>();
+        friendIds.forEach((userId, ids) -> friends.put(userId, ids.stream().mapToInt(Integer::intValue).toArray()));
+        friendsGraph.rebuild(friends);
     }
 
-    public void removeFriend(int userId, int friendId) {
-        String sqlQuery = "DELETE friends "
-                + "WHERE user_id = ? AND friend_id = ?";
-        jdbcTemplate.update(sqlQuery, userId, friendId);
+    // Граф меняется только после фиксации, чтобы не показать дружбу, которая ещё может откатиться.
+    // Одновременная такая же вставка может успеть раньше и упереться в pk_friends: дружба уже есть,
+    // поэтому это не ошибка, а отсутствие изменений
+    public boolean addFriend(int userId, int friendId) {
+        boolean added;
+        try {
+            added = jdbcTemplate.update(MERGE_FRIEND, userId, friendId) > 0;
+        } catch (DuplicateKeyException e) {
+            added = false;
+        }
+        if (added) {
+            AfterCommit.run(() -> friendsGraph.addFriend(userId, friendId));
+        }
+        return added;
     }
 
-    public List<User> getFriends(int userId) {
-        List<User> friends = new ArrayList<>();
-        String sqlQuery = "SELECT * FROM users "
-                + "WHERE users.user_id IN (SELECT friend_id from friends "
-                + "WHERE user_id = ?)";
-        SqlRowSet srs = jdbcTemplate.queryForRowSet(sqlQuery, userId);
-        while (srs.next()) {
-            friends.add(UserDbStorage.userMap(srs));
+    public boolean removeFriend(int userId, int friendId) {
+        boolean removed = jdbcTemplate.update(DELETE_FRIEND, userId, friendId) > 0;
+        if (removed) {
+            AfterCommit.run(() -> friendsGraph.removeFriend(userId, friendId));
         }
-        return friends;
+        return removed;
+    }
+
+    public List<User> getFriends(int userId) {
+        return getUsersByIds(friendsGraph.getFriendIds(userId));
     }
 
     public List<User> getCommonFriends(int friend1, int friend2) {
-        List<User> commonFriends = new ArrayList<>();
-        String sqlQuery = "SELECT * FROM users "
-                + "WHERE users.user_id IN (SELECT friend_id from friends "
-                + "WHERE user_id IN (?, ?) "
-                + "AND friend_id NOT IN (?, ?))";
-        SqlRowSet srs = jdbcTemplate.queryForRowSet(sqlQuery, friend1, friend2, friend1, friend2);
-        while (srs.next()) {
-            commonFriends.add(UserDbStorage.userMap(srs));
+        return getUsersByIds(friendsGraph.getCommonFriendIds(friend1, friend2));
+    }
+
+    public List<User> getFriendSuggestions(int userId, int limit) {
+        List<Integer> suggestionIds = friendsGraph.getFriendSuggestionIds(userId, limit);
+        Map<Integer, User> users = new HashMap<>();
+        for (User user : getUsersByIds(suggestionIds.stream().mapToInt(Integer::intValue).toArray())) {
+            users.put(user.getId(), user);
         }
-        return commonFriends;
+        List<User> suggestions = new ArrayList<>(users.size());
+        for (Integer suggestionId : suggestionIds) {
+            if (users.containsKey(suggestionId)) {
+                suggestions.add(users.get(suggestionId));
+            }
+        }
+        return suggestions;
     }
 
     public boolean isFriend(int userId, int friendId) {
-        String sqlQuery = "SELECT * FROM friends WHERE "
-                + "user_id = ? AND friends_id = ?";
-        SqlRowSet srs = jdbcTemplate.queryForRowSet(sqlQuery, userId, friendId);
-        return srs.next();
+        return friendsGraph.isFriend(userId, friendId);
+    }
+
+    private List<User> getUsersByIds(int[] userIds) {
+        List<User> users = new ArrayList<>();
+        if (userIds.length == 0) {
+            return users;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource("userIds",
+                Arrays.stream(userIds).boxed().toArray(Integer[]::new));
+        SqlRowSet srs = namedJdbcTemplate.queryForRowSet(SELECT_USERS_BY_IDS, params);
+        while (srs.next()) {
+            users.add(userMap(srs));
+        }
+        return users;
     }
 
     private static User userMap(SqlRowSet srs) {
@@ -8,11 +8,16 @@ import java.util.List;
 public interface UserStorage extends FriendsStorage {
     User createUser(User user);
 
+    // Вставляет пользователей пакетом и проставляет им сгенерированные id
+    List<User> createUsers(List<User> users);
+
     User updateUser(User user);
 
     User getUserById(int id);
 
     List<User> getAllUsers();
 
+    List<User> getUsers(int afterId, int limit);
+
     String delete(int id);
 }
\ No newline at end of file
@@ -1,11 +1,3 @@
-DROP TABLE IF EXISTS film_genres;
-DROP TABLE IF EXISTS friends;
-DROP TABLE IF EXISTS likes;
-DROP TABLE IF EXISTS genres;
-DROP TABLE IF EXISTS users CASCADE;
-DROP TABLE IF EXISTS films;
-DROP TABLE IF EXISTS rating_mpa;
-
 CREATE TABLE IF NOT EXISTS genres (
     genre_id INT NOT NULL GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     genre_name VARCHAR(255) NOT NULL
@@ -23,7 +15,8 @@ CREATE TABLE IF NOT EXISTS films (
     duration INT NOT NULL CHECK (duration > 0),
     release_date TIMESTAMP NOT NULL,
     rating_id INT DEFAULT 1 REFERENCES rating_mpa(rating_id)
-        ON DELETE RESTRICT ON UPDATE CASCADE
+        ON DELETE RESTRICT ON UPDATE CASCADE,
+    like_count INT NOT NULL DEFAULT 0
 );
 
 CREATE TABLE IF NOT EXISTS users (
@@ -11,4 +11,4 @@ MERGE INTO rating_mpa (rating_id, rating_name)
            (2, 'PG'),
            (3, 'PG-13'),
            (4, 'R'),
-           (5, 'NC-17');
\ No newline at end of file
+           (5, 'NC-17');
@@ -0,0 +1,11 @@
+-- Первичные ключи таблиц связей: по ним же ищутся жанры фильма, лайки фильма и друзья пользователя
+ALTER TABLE film_genres ADD CONSTRAINT pk_film_genres PRIMARY KEY (film_id, genre_id);
+ALTER TABLE likes ADD CONSTRAINT pk_likes PRIMARY KEY (film_id, user_id);
+ALTER TABLE friends ADD CONSTRAINT pk_friends PRIMARY KEY (user_id, friend_id);
+
+-- Обратные направления: фильмы жанра и входящие заявки в друзья
+CREATE INDEX IF NOT EXISTS idx_film_genres_genre ON film_genres (genre_id, film_id);
+CREATE INDEX IF NOT EXISTS idx_friends_friend ON friends (friend_id, user_id);
+
+-- Запасной запрос популярных фильмов сортирует по счётчику лайков
+CREATE INDEX IF NOT EXISTS idx_films_like_count ON films (like_count DESC, film_id);
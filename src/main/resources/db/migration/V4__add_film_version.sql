@@ -0,0 +1 @@
+ALTER TABLE films ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,12 @@
+-- Журнал событий только дописывается, поэтому внешних ключей нет: удаление пользователя или фильма
+-- не должно переписывать историю, а вставка пакетом не платит за их проверку
+CREATE TABLE IF NOT EXISTS events (
+    event_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id INT NOT NULL,
+    event_type VARCHAR(16) NOT NULL,
+    operation VARCHAR(16) NOT NULL,
+    entity_id INT NOT NULL,
+    event_timestamp BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_events_user ON events (user_id, event_id);
@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "filmorate.bulk.batch-size=2")
+@AutoConfigureMockMvc
+class BulkImportTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Test
+    void importedFilmsAreExported() throws Exception {
+        mockMvc.perform(post("/films/bulk").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + film("Импорт-1", 1) + "," + film("Импорт-2", 2) + "," + film("Импорт-3", 6) + "]"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"created\":3}"));
+
+        String exported = export("/films/export");
+        assertTrue(exported.startsWith("[") && exported.endsWith("]"));
+        for (String name : new String[]{"Импорт-1", "Импорт-2", "Импорт-3"}) {
+            assertTrue(exported.contains("\"name\":\"" + name + "\""), name);
+        }
+    }
+
+    @Test
+    void filmsOfFailedGenreBatchAreRolledBack() throws Exception {
+        mockMvc.perform(post("/films/bulk").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + film("Откат-1", 1) + "," + film("Откат-2", 999) + "]"))
+                .andExpect(status().isBadRequest());
+
+        assertFalse(filmService.getAllFilms().stream().map(Film::getName).anyMatch(name -> name.startsWith("Откат")));
+    }
+
+    @Test
+    void importedUsersAreExported() throws Exception {
+        mockMvc.perform(post("/users/bulk").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + user("bulk-first") + "," + user("bulk-second") + "]"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"created\":2}"));
+
+        String exported = export("/users/export");
+        assertTrue(exported.contains("\"login\":\"bulk-first\"") && exported.contains("\"login\":\"bulk-second\""));
+    }
+
+    @Test
+    void importStopsAtInvalidElement() throws Exception {
+        mockMvc.perform(post("/films/bulk").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + film("", 1) + "]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/films/bulk").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private String export(String path) throws Exception {
+        MvcResult started = mockMvc.perform(get(path))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    private static String film(String name, int genreId) {
+        return "{\"name\":\"" + name + "\",\"description\":\"Описание\",\"releaseDate\":\"2000-01-01\","
+                + "\"duration\":100,\"mpa\":{\"id\":1},\"genres\":[{\"id\":" + genreId + "}]}";
+    }
+
+    private static String user(String login) {
+        return "{\"email\":\"" + login + "@example.com\",\"login\":\"" + login + "\",\"birthday\":\"1990-01-01\"}";
+    }
+}
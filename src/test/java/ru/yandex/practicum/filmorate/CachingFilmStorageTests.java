@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.RatingMpa;
+import ru.yandex.practicum.filmorate.storage.film.CachingFilmStorage;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class CachingFilmStorageTests {
+
+    @Autowired
+    private CachingFilmStorage filmStorage;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void concurrentReadBeforeCommitDoesNotKeepStaleFilmInCache() {
+        Film film = filmStorage.createFilm(film("До"));
+        int filmId = film.getId();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            film.setName("После");
+            filmStorage.updateFilm(film);
+            // Другое соединение ещё видит зафиксированную строку и кладёт её в кэш
+            String seenByOther = CompletableFuture.supplyAsync(() -> filmStorage.getFilmById(filmId).getName())
+                    .join();
+            assertEquals("До", seenByOther);
+        });
+
+        assertEquals("После", filmStorage.getFilmById(filmId).getName());
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100L)
+                .mpa(new RatingMpa(1, null))
+                .genres(Set.of())
+                .build();
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.controller.ConcurrencyLimitInterceptor;
+import ru.yandex.practicum.filmorate.exception.TooManyRequestsException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConcurrencyLimitInterceptorTests {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ConcurrencyLimitInterceptor interceptor =
+            new ConcurrencyLimitInterceptor(meterRegistry, 4, 2, 100, 0.5);
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    void streamingResponseHoldsItsPermitUntilAsyncDispatchCompletes() {
+        MockHttpServletRequest first = stream();
+        MockHttpServletRequest second = stream();
+        startStreaming(first);
+        startStreaming(second);
+        assertEquals(2, inFlight());
+        assertThrows(TooManyRequestsException.class, () -> interceptor.preHandle(stream(), response, null));
+
+        first.setDispatcherType(DispatcherType.ASYNC);
+        interceptor.preHandle(first, response, null);
+        interceptor.afterCompletion(first, response, null, null);
+        assertEquals(1, inFlight());
+
+        startStreaming(stream());
+        assertEquals(2, inFlight());
+    }
+
+    @Test
+    void permitIsReleasedOnceWhenHandlerFails() {
+        MockHttpServletRequest request = stream();
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, new IllegalStateException());
+        interceptor.afterCompletion(request, response, null, null);
+        assertEquals(0, inFlight());
+    }
+
+    private void startStreaming(MockHttpServletRequest request) {
+        interceptor.preHandle(request, response, null);
+        interceptor.afterConcurrentHandlingStarted(request, response, null);
+    }
+
+    private double inFlight() {
+        return meterRegistry.get("filmorate.concurrency.in-flight").gauge().value();
+    }
+
+    private static MockHttpServletRequest stream() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films/stream");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/films/stream");
+        return request;
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.controller.ConcurrencyLimiter;
+import ru.yandex.practicum.filmorate.controller.ConcurrencyLimiter.Priority;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimiterTests {
+
+    private final ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 100, 0.5, new SimpleMeterRegistry());
+
+    @Test
+    void lowPriorityIsRejectedBeforeHigh() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(Priority.LOW));
+        }
+        assertFalse(limiter.tryAcquire(Priority.LOW));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire(Priority.HIGH));
+        }
+        assertFalse(limiter.tryAcquire(Priority.HIGH));
+        assertEquals(10, limiter.getInFlight());
+    }
+
+    @Test
+    void limitShrinksWhenLatencyGrows() {
+        int before = runAtLimit(10, TimeUnit.MILLISECONDS.toNanos(5));
+        int after = runAtLimit(20, TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(after < before / 2, "лимит должен уменьшиться: " + before + " -> " + after);
+    }
+
+    // Занимает весь лимит и завершает запросы с заданной задержкой
+    private int runAtLimit(int rounds, long rttNanos) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limiter.tryAcquire(Priority.HIGH)) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limiter.release(rttNanos);
+            }
+        }
+        return limiter.getLimit();
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.storage.RatingMpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DictionaryCacheTests {
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(
+            new DriverManagerDataSource("jdbc:h2:mem:dictionaries;DB_CLOSE_DELAY=-1"));
+    private RatingMpaDbStorage ratingMpaStorage;
+    private GenreDbStorage genreStorage;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS rating_mpa");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS genres");
+        jdbcTemplate.execute("CREATE TABLE rating_mpa (rating_id INT PRIMARY KEY, rating_name VARCHAR(10))");
+        jdbcTemplate.execute("CREATE TABLE genres (genre_id INT PRIMARY KEY, genre_name VARCHAR(50))");
+        jdbcTemplate.update("INSERT INTO rating_mpa VALUES (1, 'G'), (2, 'PG')");
+        jdbcTemplate.update("INSERT INTO genres VALUES (1, 'Комедия'), (2, 'Драма')");
+        ratingMpaStorage = new RatingMpaDbStorage(jdbcTemplate, new SimpleMeterRegistry());
+        ratingMpaStorage.invalidateCache();
+        genreStorage = new GenreDbStorage(jdbcTemplate, new SimpleMeterRegistry());
+        genreStorage.invalidateCache();
+    }
+
+    @Test
+    void reloadOfUnchangedDictionaryKeepsGeneration() {
+        long ratingsGeneration = ratingMpaStorage.getGeneration();
+        long genresGeneration = genreStorage.getGeneration();
+
+        ratingMpaStorage.invalidateCache();
+        genreStorage.invalidateCache();
+
+        assertEquals(ratingsGeneration, ratingMpaStorage.getGeneration());
+        assertEquals(genresGeneration, genreStorage.getGeneration());
+
+        jdbcTemplate.update("UPDATE rating_mpa SET rating_name = 'PG-13' WHERE rating_id = 2");
+        jdbcTemplate.update("UPDATE genres SET genre_name = 'Триллер' WHERE genre_id = 2");
+        ratingMpaStorage.invalidateCache();
+        genreStorage.invalidateCache();
+
+        assertNotEquals(ratingsGeneration, ratingMpaStorage.getGeneration());
+        assertNotEquals(genresGeneration, genreStorage.getGeneration());
+        assertEquals("PG-13", ratingMpaStorage.getRatingMpaById(2).getName());
+        assertEquals("Триллер", genreStorage.getGenreById(2).getName());
+    }
+
+    @Test
+    void missReloadsDictionaryAndFindsNewEntry() {
+        jdbcTemplate.update("INSERT INTO rating_mpa VALUES (3, 'R')");
+        jdbcTemplate.update("INSERT INTO genres VALUES (3, 'Мультфильм')");
+
+        assertEquals("R", ratingMpaStorage.findRatingMpa(3).getName());
+        assertEquals("Мультфильм", genreStorage.findGenre(3).getName());
+        assertEquals(3, ratingMpaStorage.getRatingsMpa().size());
+        assertEquals(3, genreStorage.getAllGenres().size());
+    }
+
+    @Test
+    void unknownEntryIsNotFoundWithoutChangingGeneration() {
+        long ratingsGeneration = ratingMpaStorage.getGeneration();
+        long genresGeneration = genreStorage.getGeneration();
+
+        assertNull(ratingMpaStorage.findRatingMpa(99).getName());
+        assertNull(genreStorage.findGenre(99).getName());
+        assertThrows(NotFoundException.class, () -> ratingMpaStorage.getRatingMpaById(99));
+        assertThrows(NotFoundException.class, () -> genreStorage.getGenreById(99));
+
+        assertEquals(ratingsGeneration, ratingMpaStorage.getGeneration());
+        assertEquals(genresGeneration, genreStorage.getGeneration());
+    }
+}
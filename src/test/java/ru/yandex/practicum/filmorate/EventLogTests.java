@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.service.EventLog;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventLogTests {
+
+    private final FlakyEventStorage storage = new FlakyEventStorage();
+    // Таймер не успеет сработать: пакеты пишутся только явным flush
+    private final EventLog eventLog = new EventLog(storage, new SimpleMeterRegistry(), 100, 10, Duration.ofHours(1));
+
+    @Test
+    void failedBatchIsWrittenOneByOne() {
+        storage.failWhen = events -> events.size() > 1;
+        appendFriends(1, 2, 3);
+
+        eventLog.flush();
+
+        assertEquals(List.of(1, 2, 3), storage.writtenEntityIds());
+    }
+
+    @Test
+    void eventsSurviveUnavailableStorageAndKeepTheirOrder() {
+        storage.failWhen = events -> true;
+        appendFriends(1, 2, 3);
+        eventLog.flush();
+        assertEquals(List.of(), storage.writtenEntityIds());
+
+        appendFriends(4);
+        storage.failWhen = events -> false;
+        eventLog.flush();
+
+        assertEquals(List.of(1, 2, 3, 4), storage.writtenEntityIds());
+    }
+
+    @Test
+    void onlyEventRejectedByStorageIsSkipped() {
+        storage.rejectEntityId = 2;
+        appendFriends(1, 2, 3);
+
+        eventLog.flush();
+
+        assertEquals(List.of(1, 3), storage.writtenEntityIds());
+    }
+
+    @Test
+    void fullBatchIsFlushedWithoutWaitingForTimer() throws InterruptedException {
+        for (int i = 1; i <= 10; i++) {
+            appendFriends(i);
+        }
+        for (int attempt = 0; attempt < 100 && storage.writtenEntityIds().size() < 10; attempt++) {
+            Thread.sleep(10);
+        }
+        assertEquals(10, storage.writtenEntityIds().size());
+    }
+
+    @Test
+    void fullQueueHoldsAppendUntilBacklogIsWritten() throws InterruptedException {
+        EventLog smallLog = new EventLog(storage, new SimpleMeterRegistry(), 3, 10, Duration.ofHours(1));
+        storage.failWhen = events -> true;
+        // Четвёртое событие освобождает очередь, перенося первые три в недописанный остаток,
+        // после шестого места нет ни в очереди, ни в остатке
+        for (int i = 1; i <= 6; i++) {
+            smallLog.append(1, Event.EventType.FRIEND, Event.Operation.ADD, i);
+        }
+        Thread appender = new Thread(() -> smallLog.append(1, Event.EventType.FRIEND, Event.Operation.ADD, 7));
+        appender.start();
+        appender.join(200);
+        assertTrue(appender.isAlive());
+        assertEquals(List.of(), storage.writtenEntityIds());
+
+        storage.failWhen = events -> false;
+        smallLog.flush();
+        appender.join(5000);
+        smallLog.flush();
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7), storage.writtenEntityIds());
+    }
+
+    private void appendFriends(int... friendIds) {
+        for (int friendId : friendIds) {
+            eventLog.append(1, Event.EventType.FRIEND, Event.Operation.ADD, friendId);
+        }
+    }
+
+    private static class FlakyEventStorage implements EventStorage {
+
+        private final List<Event> written = new ArrayList<>();
+        private volatile Predicate<List<Event>> failWhen = events -> false;
+        private volatile int rejectEntityId;
+
+        @Override
+        public synchronized void addEvents(List<Event> events) {
+            if (failWhen.test(events)) {
+                throw new TransientDataAccessResourceException("База недоступна");
+            }
+            if (events.stream().anyMatch(event -> event.getEntityId() == rejectEntityId)) {
+                throw new DataIntegrityViolationException("Событие отвергнуто");
+            }
+            written.addAll(events);
+        }
+
+        @Override
+        public List<Event> getEvents(int userId, long afterId, int limit) {
+            return List.of();
+        }
+
+        synchronized List<Integer> writtenEntityIds() {
+            return written.stream().map(Event::getEntityId).toList();
+        }
+    }
+}
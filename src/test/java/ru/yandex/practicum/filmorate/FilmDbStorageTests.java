@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.RatingMpa;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.jdbc.QueryCounter;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "filmorate.storage.genre-batch-size=2")
+@Transactional
+class FilmDbStorageTests {
+
+    @Autowired
+    private FilmDbStorage filmStorage;
+
+    @Test
+    void getAllFilmsLoadsGenresForEveryFilmAcrossBatches() {
+        Film first = filmStorage.createFilm(film("Первый", Set.of(new Genre(1, null), new Genre(2, null))));
+        Film second = filmStorage.createFilm(film("Второй", Set.of()));
+        Film third = filmStorage.createFilm(film("Третий", Set.of(new Genre(6, null))));
+
+        Map<Integer, Film> films = filmStorage.getAllFilms().stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+
+        assertEquals(List.of(1, 2), genreIds(films.get(first.getId())));
+        assertTrue(films.get(second.getId()).getGenres().isEmpty());
+        assertEquals(List.of(6), genreIds(films.get(third.getId())));
+        assertEquals("Боевик", films.get(third.getId()).getGenres().iterator().next().getName());
+    }
+
+    @Test
+    void updateFilmWritesOnlyChangedGenresWithoutRereading() {
+        Film film = filmStorage.createFilm(film("До", Set.of(new Genre(1, null), new Genre(2, null))));
+
+        film.setName("После");
+        QueryCounter.start();
+        Film unchangedGenres = filmStorage.updateFilm(film);
+        assertEquals(2, QueryCounter.stop());
+
+        film.setGenres(Set.of(new Genre(2, null), new Genre(6, null)));
+        QueryCounter.start();
+        Film changedGenres = filmStorage.updateFilm(film);
+        assertEquals(4, QueryCounter.stop());
+
+        assertEquals(1, unchangedGenres.getVersion());
+        assertEquals(2, changedGenres.getVersion());
+        assertEquals(List.of(2, 6), genreIds(changedGenres));
+        assertEquals("Боевик", changedGenres.getGenres().stream().reduce((first, second) -> second)
+                .orElseThrow().getName());
+        assertEquals(List.of(2, 6), genreIds(filmStorage.getFilmById(film.getId())));
+        assertEquals("После", filmStorage.getFilmById(film.getId()).getName());
+    }
+
+    @Test
+    void updateOfMissingFilmIsRejectedByRowCount() {
+        Film film = film("Нет такого", Set.of());
+        film.setId(-1);
+        assertThrows(NotFoundException.class, () -> filmStorage.updateFilm(film));
+    }
+
+    private static List<Integer> genreIds(Film film) {
+        return film.getGenres().stream().map(Genre::getId).toList();
+    }
+
+    private static Film film(String name, Set<Genre> genres) {
+        return Film.builder()
+                .name(name)
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100L)
+                .mpa(new RatingMpa(1, null))
+                .genres(genres)
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.like.PopularFilmsIndex;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilmSearchIndexTests {
+
+    private static final Set<FilmSearchIndex.Field> TITLE = EnumSet.of(FilmSearchIndex.Field.TITLE);
+    private static final Set<FilmSearchIndex.Field> ALL = EnumSet.allOf(FilmSearchIndex.Field.class);
+
+    private PopularFilmsIndex popularFilmsIndex;
+    private FilmSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        popularFilmsIndex = new PopularFilmsIndex(null, null);
+        index = new FilmSearchIndex(null, popularFilmsIndex);
+        index.addFilm(film(1, "Ёлки", "Новогодняя комедия"));
+        index.addFilm(film(2, "Елки 2", "Снова комедия"));
+        index.addFilm(film(3, "Star Wars", "Space opera"));
+    }
+
+    @Test
+    void prefixSearchIsCaseAndYoInsensitive() {
+        assertEquals(List.of(1, 2), index.search("ёлк", TITLE, 10));
+        assertEquals(List.of(3), index.search("STAR wa", TITLE, 10));
+    }
+
+    @Test
+    void descriptionIsSearchedOnlyWhenRequested() {
+        assertEquals(List.of(), index.search("комедия", TITLE, 10));
+        assertEquals(List.of(1, 2), index.search("комедия", ALL, 10));
+    }
+
+    @Test
+    void resultsAreRankedByLikes() {
+        popularFilmsIndex.changeLikes(2, 5);
+        assertEquals(List.of(2, 1), index.search("елки", TITLE, 10));
+    }
+
+    @Test
+    void limitKeepsMostLikedFilmsWithTiesByIdAcrossManyPrefixMatches() {
+        for (int id = 10; id < 60; id++) {
+            index.addFilm(film(id, "Комедия " + id + " часть" + id, null));
+        }
+        popularFilmsIndex.changeLikes(42, 3);
+        popularFilmsIndex.changeLikes(17, 3);
+        popularFilmsIndex.changeLikes(30, 1);
+        assertEquals(List.of(17, 42, 30, 10), index.search("комед част", TITLE, 4));
+        assertEquals(List.of(), index.search("комед", TITLE, 0));
+    }
+
+    @Test
+    void concurrentUpdatesOfOneFilmLeaveOnlyItsLastTitle() throws InterruptedException {
+        Thread[] writers = new Thread[4];
+        for (int i = 0; i < writers.length; i++) {
+            String name = "Вариант" + i;
+            writers[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    index.updateFilm(film(3, name, null));
+                }
+            });
+            writers[i].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(List.of(3), index.search("вариант", TITLE, 10));
+        int indexed = 0;
+        for (int i = 0; i < writers.length; i++) {
+            indexed += index.search("вариант" + i, TITLE, 10).size();
+        }
+        assertEquals(1, indexed);
+    }
+
+    @Test
+    void updatedAndRemovedFilmsLeaveTheIndex() {
+        index.updateFilm(film(1, "Другое название", "Новогодняя комедия"));
+        index.removeFilm(2);
+        assertEquals(List.of(), index.search("елки", TITLE, 10));
+    }
+
+    private static Film film(int id, String name, String description) {
+        return Film.builder().id(id).name(name).description(description).build();
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.controller.FilmView;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.RatingMpa;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilmViewTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<Film> films = List.of(Film.builder()
+            .id(1)
+            .name("Фильм")
+            .description("Описание")
+            .releaseDate(LocalDate.of(2000, 1, 1))
+            .duration(100L)
+            .genres(Set.of(new Genre(2, "Драма")))
+            .mpa(new RatingMpa(3, "PG-13"))
+            .build());
+
+    @Test
+    void selectedFieldsOnly() throws Exception {
+        String json = objectMapper.writeValueAsString(FilmView.of(films, "id,name", false));
+        assertEquals("[{\"id\":1,\"name\":\"Фильм\"}]", json);
+    }
+
+    @Test
+    void compactViewReferencesGenresAndMpaById() throws Exception {
+        String json = objectMapper.writeValueAsString(FilmView.of(films, "id,genres,mpa", true));
+        assertEquals("[{\"id\":1,\"genreIds\":[2],\"mpaId\":3}]", json);
+    }
+
+    @Test
+    void compactViewIsSmallerThanFullView() throws Exception {
+        int full = objectMapper.writeValueAsBytes(FilmView.of(films, null, false)).length;
+        int compact = objectMapper.writeValueAsBytes(FilmView.of(films, null, true)).length;
+        assertTrue(compact < full);
+    }
+
+    @Test
+    void viewKeyDependsOnSelectionNotOnSpelling() {
+        assertEquals(FilmView.key("id,name", false), FilmView.key("name, id", false));
+        assertNotEquals(FilmView.key("id,name", false), FilmView.key("id,name", true));
+        assertNotEquals(FilmView.key(null, false), FilmView.key("id", false));
+    }
+
+    @Test
+    void unknownFieldIsRejected() {
+        assertThrows(ValidationException.class, () -> FilmView.of(films, "id,rating", false));
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.user.FriendsGraph;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FriendsGraphTests {
+
+    private FriendsGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        graph = new FriendsGraph();
+        graph.addFriend(1, 3);
+        graph.addFriend(1, 2);
+        graph.addFriend(1, 4);
+        graph.addFriend(2, 3);
+        graph.addFriend(2, 5);
+        graph.addFriend(4, 5);
+        graph.addFriend(4, 6);
+    }
+
+    @Test
+    void friendIdsAreSortedAndDeduplicated() {
+        graph.addFriend(1, 2);
+        assertArrayEquals(new int[]{2, 3, 4}, graph.getFriendIds(1));
+    }
+
+    @Test
+    void commonFriendsAreIntersectionNotUnion() {
+        assertArrayEquals(new int[]{3}, graph.getCommonFriendIds(1, 2));
+        assertArrayEquals(new int[0], graph.getCommonFriendIds(1, 6));
+    }
+
+    @Test
+    void suggestionsAreRankedByMutualFriends() {
+        assertEquals(List.of(5, 6), graph.getFriendSuggestionIds(1, 10));
+        assertEquals(List.of(5), graph.getFriendSuggestionIds(1, 1));
+    }
+
+    @Test
+    void removeFriendUpdatesAdjacency() {
+        graph.removeFriend(1, 3);
+        assertFalse(graph.isFriend(1, 3));
+        assertTrue(graph.isFriend(1, 2));
+        assertArrayEquals(new int[0], graph.getCommonFriendIds(1, 2));
+    }
+}
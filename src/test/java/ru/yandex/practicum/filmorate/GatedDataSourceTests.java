@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.jdbc.GatedDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GatedDataSourceTests {
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GatedDataSource gated = new GatedDataSource(dataSource, 1, Duration.ofMillis(50), meterRegistry);
+
+    @Test
+    void closingConnectionReleasesPermitOnce() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        Connection first = gated.getConnection();
+        assertEquals(0, availablePermits());
+        first.close();
+        first.close();
+        assertEquals(1, availablePermits());
+
+        gated.getConnection().close();
+        assertEquals(1, availablePermits());
+    }
+
+    @Test
+    void callsAreDelegatedToConnection() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        doThrow(new SQLException("Соединение разорвано")).when(connection).commit();
+
+        try (Connection proxy = gated.getConnection()) {
+            assertEquals(true, proxy.getAutoCommit());
+            assertThrows(SQLException.class, proxy::commit);
+        }
+        verify(connection).close();
+    }
+
+    @Test
+    void failedConnectReleasesPermit() throws SQLException {
+        when(dataSource.getConnection()).thenThrow(new SQLException("База недоступна"));
+
+        assertThrows(SQLException.class, gated::getConnection);
+        assertThrows(SQLException.class, gated::getConnection);
+        assertEquals(1, availablePermits());
+    }
+
+    @Test
+    void failedCloseReleasesPermit() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(connection);
+        doThrow(new SQLException("Ошибка закрытия")).when(connection).close();
+
+        Connection proxy = gated.getConnection();
+        assertThrows(SQLException.class, proxy::close);
+        assertEquals(1, availablePermits());
+    }
+
+    @Test
+    void waitingForPermitTimesOut() throws SQLException {
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        Connection held = gated.getConnection();
+        assertThrows(SQLTransientConnectionException.class, gated::getConnection);
+        held.close();
+        assertEquals(1, availablePermits());
+    }
+
+    private int availablePermits() {
+        return (int) meterRegistry.get("filmorate.jdbc.gate.available").gauge().value();
+    }
+}
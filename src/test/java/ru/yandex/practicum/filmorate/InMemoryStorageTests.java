@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.RatingMpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.event.EventStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryEventStorage;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "filmorate.storage.engine=memory")
+class InMemoryStorageTests {
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private LikeStorage likeStorage;
+
+    @Autowired
+    private EventStorage eventStorage;
+
+    @Test
+    void engineIsSelectedByProperty() {
+        assertInstanceOf(InMemoryFilmStorage.class, filmStorage);
+        assertInstanceOf(InMemoryEventStorage.class, eventStorage);
+    }
+
+    @Test
+    void filmRoundTripResolvesDictionariesAndBumpsVersion() {
+        Film film = filmStorage.createFilm(film("Фильм", Set.of(new Genre(6, null))));
+        film.setName("Новое название");
+        Film updated = filmStorage.updateFilm(film);
+
+        assertEquals("Новое название", filmStorage.getFilmById(film.getId()).getName());
+        assertEquals("Боевик", updated.getGenres().iterator().next().getName());
+        assertEquals(1, updated.getVersion());
+        assertThrows(NotFoundException.class, () -> filmStorage.getFilmById(-1));
+    }
+
+    @Test
+    void unknownDictionaryEntryIsRejectedLikeForeignKey() {
+        assertThrows(DataIntegrityViolationException.class,
+                () -> filmStorage.createFilm(film("Без жанра", Set.of(new Genre(999, null)))));
+        Film unknownMpa = film("Без рейтинга", Set.of());
+        unknownMpa.setMpa(new RatingMpa(999, null));
+        assertThrows(DataIntegrityViolationException.class, () -> filmStorage.createFilm(unknownMpa));
+
+        Film film = filmStorage.createFilm(film("Существующий", Set.of()));
+        film.setGenres(Set.of(new Genre(999, null)));
+        assertThrows(DataIntegrityViolationException.class, () -> filmStorage.updateFilm(film));
+        assertEquals(0, filmStorage.getFilmById(film.getId()).getGenres().size());
+    }
+
+    @Test
+    void likesAreCountedOnceAndRemovedWithFilm() {
+        Film film = filmStorage.createFilm(film("С лайками", Set.of()));
+        User user = userStorage.createUser(user("liker"));
+
+        assertTrue(likeStorage.addLike(film.getId(), user.getId()));
+        assertFalse(likeStorage.addLike(film.getId(), user.getId()));
+        assertEquals(1, likeStorage.getLikeCounts().get(film.getId()));
+
+        filmStorage.removeFilm(film.getId());
+        assertFalse(likeStorage.getLikeCounts().containsKey(film.getId()));
+        assertFalse(likeStorage.addLike(film.getId(), user.getId()));
+    }
+
+    @Test
+    void usersArePagedByIdAndFriendsResolved() {
+        User first = userStorage.createUser(user("first"));
+        User second = userStorage.createUser(user("second"));
+        userStorage.addFriend(first.getId(), second.getId());
+
+        assertEquals(List.of(second.getId()), userStorage.getUsers(first.getId(), 1).stream()
+                .map(User::getId).toList());
+        assertEquals("second", userStorage.getFriends(first.getId()).get(0).getLogin());
+    }
+
+    @Test
+    void eventsArePagedPerUserByEventId() {
+        User owner = userStorage.createUser(user("feed-owner"));
+        User other = userStorage.createUser(user("feed-other"));
+        eventStorage.addEvents(List.of(event(owner.getId(), 1), event(other.getId(), 2), event(owner.getId(), 3)));
+
+        List<Event> feed = eventStorage.getEvents(owner.getId(), 0, 10);
+        assertEquals(List.of(1, 3), feed.stream().map(Event::getEntityId).toList());
+        assertEquals(feed.subList(1, 2), eventStorage.getEvents(owner.getId(), feed.get(0).getEventId(), 10));
+        assertEquals(feed.subList(0, 1), eventStorage.getEvents(owner.getId(), 0, 1));
+    }
+
+    private static Event event(int userId, int filmId) {
+        return Event.builder()
+                .userId(userId)
+                .eventType(Event.EventType.LIKE)
+                .operation(Event.Operation.ADD)
+                .entityId(filmId)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    private static Film film(String name, Set<Genre> genres) {
+        return Film.builder()
+                .name(name)
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100L)
+                .mpa(new RatingMpa(1, null))
+                .genres(genres)
+                .build();
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@example.com")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
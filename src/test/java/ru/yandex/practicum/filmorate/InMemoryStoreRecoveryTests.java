@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryEventStorage;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryStore;
+import ru.yandex.practicum.filmorate.storage.memory.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryStoreRecoveryTests {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void journalIsReplayedAfterCrash() throws IOException {
+        InMemoryUserStorage before = open();
+        User first = before.createUser(user("first"));
+        User second = before.createUser(user("second"));
+        first.setName("Переименован");
+        before.updateUser(first);
+        before.addFriend(first.getId(), second.getId());
+
+        InMemoryUserStorage after = open();
+        assertEquals("Переименован", after.getUserById(first.getId()).getName());
+        assertTrue(after.isFriend(first.getId(), second.getId()));
+        assertEquals(second.getId() + 1, after.createUser(user("third")).getId());
+    }
+
+    @Test
+    void snapshotAndLaterJournalAreCombined() throws IOException {
+        InMemoryStore store = new InMemoryStore(directory.toString(), true);
+        store.recover();
+        InMemoryUserStorage before = new InMemoryUserStorage(store);
+        User first = before.createUser(user("first"));
+        User second = before.createUser(user("second"));
+        before.addFriend(first.getId(), second.getId());
+        store.checkpoint();
+        before.removeFriend(first.getId(), second.getId());
+        before.createUser(user("third"));
+
+        InMemoryUserStorage after = open();
+        assertEquals(List.of("first", "second", "third"),
+                after.getAllUsers().stream().map(User::getLogin).toList());
+        assertFalse(after.isFriend(first.getId(), second.getId()));
+    }
+
+    @Test
+    void tornTailOfJournalIsDiscarded() throws IOException {
+        InMemoryUserStorage before = open();
+        before.createUser(user("first"));
+        try (Stream<Path> segments = Files.list(directory)) {
+            Path segment = segments.filter(path -> path.toString().endsWith(".log")).findFirst().orElseThrow();
+            Files.write(segment, new byte[]{0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+        }
+
+        InMemoryUserStorage after = open();
+        assertEquals(1, after.getAllUsers().size());
+    }
+
+    @Test
+    void corruptedEarlierSegmentFailsRecovery() throws IOException {
+        open().createUser(user("first"));
+        open().createUser(user("second"));
+        Path first;
+        try (Stream<Path> segments = Files.list(directory)) {
+            first = segments.filter(path -> path.toString().endsWith(".log")).sorted().findFirst().orElseThrow();
+        }
+        byte[] content = Files.readAllBytes(first);
+        content[content.length - 1] ^= 1;
+        Files.write(first, content);
+
+        InMemoryStore store = new InMemoryStore(directory.toString(), true);
+        assertThrows(IOException.class, store::recover);
+    }
+
+    @Test
+    void eventsSurviveSnapshotAndJournalWithTheirIds() throws IOException {
+        InMemoryStore store = new InMemoryStore(directory.toString(), true);
+        store.recover();
+        InMemoryEventStorage before = new InMemoryEventStorage(store);
+        before.addEvents(List.of(event(1, 10), event(2, 20)));
+        store.checkpoint();
+        before.addEvents(List.of(event(1, 11)));
+
+        InMemoryStore reopened = new InMemoryStore(directory.toString(), true);
+        reopened.recover();
+        InMemoryEventStorage after = new InMemoryEventStorage(reopened);
+        assertEquals(List.of(1L, 3L), after.getEvents(1, 0, 10).stream().map(Event::getEventId).toList());
+        assertEquals(List.of(11), after.getEvents(1, 1, 10).stream().map(Event::getEntityId).toList());
+        after.addEvents(List.of(event(2, 21)));
+        assertEquals(List.of(2L, 4L), after.getEvents(2, 0, 10).stream().map(Event::getEventId).toList());
+    }
+
+    private InMemoryUserStorage open() throws IOException {
+        InMemoryStore store = new InMemoryStore(directory.toString(), true);
+        store.recover();
+        return new InMemoryUserStorage(store);
+    }
+
+    private static Event event(int userId, int friendId) {
+        return Event.builder()
+                .userId(userId)
+                .eventType(Event.EventType.FRIEND)
+                .operation(Event.Operation.ADD)
+                .entityId(friendId)
+                .timestamp(1L)
+                .build();
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@example.com")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.yandex.practicum.filmorate.controller.QueryCountInterceptor;
+import ru.yandex.practicum.filmorate.storage.jdbc.InstrumentedJdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.jdbc.QueryCounter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InstrumentedJdbcTemplateTests {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InstrumentedJdbcTemplate jdbcTemplate = new InstrumentedJdbcTemplate(
+            new DriverManagerDataSource("jdbc:h2:mem:instrumented;DB_CLOSE_DELAY=-1"), meterRegistry,
+            Duration.ofMinutes(1));
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS items (id INT PRIMARY KEY)");
+        jdbcTemplate.execute("DELETE FROM items");
+        meterRegistry.clear();
+    }
+
+    @Test
+    void queryIsNamedAfterCallingMethod() {
+        jdbcTemplate.queryForList("SELECT id FROM items WHERE id IN (1, 2)", Integer.class);
+        jdbcTemplate.queryForList("SELECT id FROM items WHERE id IN (1, 2, 3)", Integer.class);
+
+        assertEquals(2, timer("InstrumentedJdbcTemplateTests.queryIsNamedAfterCallingMethod", "success").count());
+    }
+
+    @Test
+    void lambdaAndNestedClassAreNamedAfterEnclosingMethod() {
+        Supplier<Integer> count = () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class);
+        count.get();
+        new Storage().countItems();
+
+        assertEquals(1, timer("InstrumentedJdbcTemplateTests.lambdaAndNestedClassAreNamedAfterEnclosingMethod",
+                "success").count());
+        assertEquals(1, timer("InstrumentedJdbcTemplateTests.countItems", "success").count());
+    }
+
+    @Test
+    void failedQueryIsRecordedAsError() {
+        assertThrows(DataAccessException.class, () -> jdbcTemplate.update("INSERT INTO missing VALUES (1)"));
+
+        assertEquals(1, meterRegistry.get("filmorate.jdbc.query").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void rowsOfQueriesAndBatchesAreSummed() {
+        jdbcTemplate.batchUpdate("INSERT INTO items VALUES (?)", List.of(new Object[]{1}, new Object[]{2},
+                new Object[]{3}));
+        List<Integer> ids = jdbcTemplate.queryForList("SELECT id FROM items", Integer.class);
+
+        assertEquals(3, ids.size());
+        assertEquals(6, meterRegistry.get("filmorate.jdbc.rows")
+                .tag("query", "InstrumentedJdbcTemplateTests.rowsOfQueriesAndBatchesAreSummed")
+                .summary().totalAmount());
+    }
+
+    @Test
+    void queriesAreCountedOnlyBetweenStartAndStop() {
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class);
+        QueryCounter.start();
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class);
+        jdbcTemplate.update("INSERT INTO items VALUES (1)");
+
+        assertEquals(2, QueryCounter.stop());
+        assertEquals(0, QueryCounter.stop());
+    }
+
+    @Test
+    void asyncRequestIsRecordedOnceAndLeavesNoCounterOnThread() {
+        QueryCountInterceptor interceptor = new QueryCountInterceptor(meterRegistry);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films/stream");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, null);
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class);
+        interceptor.afterConcurrentHandlingStarted(request, response, null);
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class);
+        assertEquals(0, QueryCounter.stop());
+
+        request.setDispatcherType(DispatcherType.ASYNC);
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+
+        DistributionSummary queries = meterRegistry.get("filmorate.http.queries").summary();
+        assertEquals(1, queries.count());
+        assertEquals(1, queries.totalAmount());
+    }
+
+    private Timer timer(String query, String outcome) {
+        return meterRegistry.get("filmorate.jdbc.query").tag("query", query).tag("outcome", outcome).timer();
+    }
+
+    private class Storage {
+        void countItems() {
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.TooManyRequestsException;
+import ru.yandex.practicum.filmorate.service.LikeIngestionQueue;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikePair;
+import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.like.PopularFilmsIndex;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LikeIngestionQueueTests {
+
+    private final LikeStorage likeStorage = mock(LikeStorage.class);
+    // Записанные в хранилище операции в порядке записи: +фильм/пользователь — лайк, - — отмена
+    private final List<String> written = new CopyOnWriteArrayList<>();
+
+    LikeIngestionQueueTests() {
+        when(likeStorage.addLikes(anyList())).thenAnswer(invocation -> record("+", invocation.getArgument(0)));
+        when(likeStorage.deleteLikes(anyList())).thenAnswer(invocation -> record("-", invocation.getArgument(0)));
+    }
+
+    @Test
+    void repeatedOperationsOnPairCollapseToTheLastOne() throws InterruptedException {
+        LikeIngestionQueue queue = queue(100, 100);
+        queue.addLike(1, 1);
+        queue.deleteLike(1, 1);
+        queue.addLike(2, 1);
+        queue.addLike(2, 1);
+        assertEquals(2, queue.size());
+
+        queue.shutdown();
+
+        assertEquals(List.of("+2/1", "-1/1"), written);
+    }
+
+    @Test
+    void fullBatchIsFlushedWithoutWaitingForTimer() throws InterruptedException {
+        LikeIngestionQueue queue = queue(100, 2);
+        queue.addLike(1, 1);
+        queue.addLike(1, 2);
+
+        for (int attempt = 0; attempt < 100 && written.size() < 2; attempt++) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of("+1/1", "+1/2"), written);
+        assertEquals(0, queue.size());
+        queue.shutdown();
+    }
+
+    @Test
+    void shutdownDrainsPendingAndRejectsNewLikes() throws InterruptedException {
+        LikeIngestionQueue queue = queue(100, 100);
+        queue.addLike(1, 1);
+        queue.addLike(2, 1);
+
+        queue.shutdown();
+
+        assertEquals(List.of("+1/1", "+2/1"), written);
+        assertThrows(TooManyRequestsException.class, () -> queue.addLike(3, 1));
+    }
+
+    @Test
+    void fullQueueRejectsOnlyNewPairs() throws InterruptedException {
+        LikeIngestionQueue queue = queue(1, 100);
+        queue.addLike(1, 1);
+
+        assertThrows(TooManyRequestsException.class, () -> queue.addLike(2, 1));
+        queue.deleteLike(1, 1);
+
+        queue.shutdown();
+        assertEquals(List.of("-1/1"), written);
+    }
+
+    @Test
+    void failedBatchIsWrittenOneByOne() throws InterruptedException {
+        when(likeStorage.addLikes(anyList())).thenAnswer(invocation -> {
+            List<LikePair> likes = invocation.getArgument(0);
+            if (likes.size() > 1 || likes.contains(new LikePair(2, 1))) {
+                throw new DataIntegrityViolationException("Фильм удалён");
+            }
+            return record("+", likes);
+        });
+        LikeIngestionQueue queue = queue(100, 100);
+        queue.addLike(1, 1);
+        queue.addLike(2, 1);
+        queue.addLike(3, 1);
+
+        queue.shutdown();
+
+        assertEquals(List.of("+1/1", "+3/1"), written);
+    }
+
+    @Test
+    void likesAreKeptWhileDatabaseIsUnavailable() throws InterruptedException {
+        AtomicInteger failures = new AtomicInteger(2);
+        when(likeStorage.addLikes(anyList())).thenAnswer(invocation -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new CannotGetJdbcConnectionException("База недоступна");
+            }
+            return record("+", invocation.getArgument(0));
+        });
+        LikeIngestionQueue queue = queue(100, 1);
+        queue.addLike(1, 1);
+
+        queue.shutdown();
+
+        assertEquals(List.of("+1/1"), written);
+    }
+
+    // Таймер не успевает сработать за время теста: пакеты пишутся по размеру или при остановке
+    private LikeIngestionQueue queue(int capacity, int batchSize) {
+        return new LikeIngestionQueue(likeStorage, List.of(new PopularFilmsIndex(likeStorage, mock(FilmStorage.class))),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry(),
+                capacity, batchSize, Duration.ofHours(1));
+    }
+
+    private List<LikePair> record(String operation, List<LikePair> likes) {
+        likes.forEach(like -> written.add(operation + like.filmId() + "/" + like.userId()));
+        return likes;
+    }
+}
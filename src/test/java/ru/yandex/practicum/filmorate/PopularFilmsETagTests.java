@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.RatingMpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Лидер набирает больше лайков, чем любой фильм других тестов в общей базе, поэтому первое место за ним
+@SpringBootTest
+@AutoConfigureMockMvc
+class PopularFilmsETagTests {
+
+    // Выдача, в которую заведомо попадают все фильмы
+    private static final int ALL = 1000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void likeOutsideTheReturnedTopKeepsETag() throws Exception {
+        Film leader = filmService.addFilm(film());
+        Film other = filmService.addFilm(film());
+        for (int i = 0; i < 10; i++) {
+            filmService.addLike(leader.getId(), user().getId());
+        }
+        String etag = popularETag(1);
+
+        filmService.addLike(other.getId(), user().getId());
+        mockMvc.perform(popular(1).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        filmService.addLike(leader.getId(), user().getId());
+        mockMvc.perform(popular(1).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void editOfFilmInTopChangesETag() throws Exception {
+        Film film = filmService.addFilm(film());
+        String etag = popularETag(ALL);
+        mockMvc.perform(popular(ALL).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        film.setName("Новое название");
+        filmService.updateFilm(film);
+        mockMvc.perform(popular(ALL).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void differentViewsOfTheListDoNotShareETag() throws Exception {
+        filmService.addFilm(film());
+        String etag = popularETag(ALL);
+
+        mockMvc.perform(popular(ALL).param("fields", "id").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        mockMvc.perform(popular(ALL).param("compact", "true").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        mockMvc.perform(popular(ALL).param("compact", "false").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void unchangedFilmIsAnsweredWithoutLoadingIt() throws Exception {
+        Film film = filmService.addFilm(film());
+        String etag = mockMvc.perform(get("/films/{filmId}", film.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        double loadsBefore = filmLoads().count();
+        mockMvc.perform(get("/films/{filmId}", film.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        assertEquals(loadsBefore, filmLoads().count());
+
+        film.setName("Новое название");
+        filmService.updateFilm(film);
+        mockMvc.perform(get("/films/{filmId}", film.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    // Каждая загрузка фильма сервисом проходит через SingleFlight, даже если фильм лежит в кэше
+    private Counter filmLoads() {
+        return meterRegistry.get("filmorate.singleflight.calls").tag("name", "film").tag("outcome", "loaded")
+                .counter();
+    }
+
+    private String popularETag(int count) throws Exception {
+        return mockMvc.perform(popular(count))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private static MockHttpServletRequestBuilder popular(int count) {
+        return get("/films/popular").param("count", String.valueOf(count));
+    }
+
+    private User user() {
+        return userService.createUser(User.builder()
+                .email("fan@example.com")
+                .login("fan")
+                .name("fan")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+    }
+
+    private static Film film() {
+        return Film.builder()
+                .name("Фильм")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100L)
+                .mpa(new RatingMpa(1, null))
+                .genres(Set.of())
+                .build();
+    }
+}
@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.like.PopularFilmsIndex;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PopularFilmsIndexTests {
+
+    private PopularFilmsIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PopularFilmsIndex(null, null);
+        index.addFilm(film(1, 2000, 1));
+        index.addFilm(film(2, 2000, 1, 2));
+        index.addFilm(film(3, 2010, 2));
+        index.changeLikes(1, 1);
+        index.changeLikes(2, 3);
+        index.changeLikes(3, 2);
+    }
+
+    @Test
+    void filtersByGenreAndYear() {
+        assertEquals(List.of(2, 3, 1), index.getTopFilmIds(10));
+        assertEquals(List.of(2, 3), index.getTopFilmIds(10, 2, null));
+        assertEquals(List.of(2, 1), index.getTopFilmIds(10, null, 2000));
+        assertEquals(List.of(2), index.getTopFilmIds(10, 2, 2000));
+        assertEquals(List.of(), index.getTopFilmIds(10, 3, null));
+    }
+
+    @Test
+    void updatedFilmMovesBetweenBuckets() {
+        index.updateFilm(film(2, 2010, 1));
+        assertEquals(List.of(3), index.getTopFilmIds(10, 2, null));
+        assertEquals(List.of(2, 3), index.getTopFilmIds(10, null, 2010));
+        assertEquals(List.of(2, 1), index.getTopFilmIds(10, 1, null));
+        assertEquals(List.of(3), index.getTopFilmIds(10, 2, 2010));
+        assertEquals(List.of(), index.getTopFilmIds(10, 2, 2000));
+        assertEquals(List.of(2), index.getTopFilmIds(10, 1, 2010));
+    }
+
+    @Test
+    void likesReorderBucketsAndRemovedFilmsDisappear() {
+        index.changeLikes(1, 5);
+        assertEquals(List.of(1, 2), index.getTopFilmIds(10, 1, null));
+        assertEquals(List.of(1, 2), index.getTopFilmIds(10, 1, 2000));
+        index.removeFilm(1);
+        assertEquals(List.of(2), index.getTopFilmIds(10, null, 2000));
+        assertEquals(List.of(2), index.getTopFilmIds(10, 1, 2000));
+    }
+
+    @Test
+    void fingerprintIgnoresLikesOutsideTheReturnedTop() {
+        long before = index.getTopFingerprint(1, null, null);
+        index.changeLikes(1, 1);
+        assertEquals(before, index.getTopFingerprint(1, null, null));
+        index.changeLikes(2, 1);
+        assertNotEquals(before, index.getTopFingerprint(1, null, null));
+    }
+
+    @Test
+    void fingerprintChangesWhenFilmInTopIsEdited() {
+        long before = index.getTopFingerprint(1, null, null);
+        Film edited = film(2, 2000, 1, 2);
+        edited.setVersion(1);
+        index.updateFilm(edited);
+        assertNotEquals(before, index.getTopFingerprint(1, null, null));
+    }
+
+    @Test
+    void rebuildKeepsLikesThatArriveWhileReadingCounts() {
+        LikeStorage likeStorage = mock(LikeStorage.class);
+        FilmStorage filmStorage = mock(FilmStorage.class);
+        PopularFilmsIndex rebuilt = new PopularFilmsIndex(likeStorage, filmStorage);
+        rebuilt.changeLikes(1, 4);
+        // Лайк фиксируется уже после того, как снимок счётчиков прочитан
+        when(likeStorage.getLikeCounts()).thenAnswer(invocation -> {
+            rebuilt.changeLikes(1, 1);
+            return Map.of(1, 4);
+        });
+        when(filmStorage.getFilmFacets()).thenReturn(Map.of());
+
+        rebuilt.rebuild();
+
+        assertEquals(5, rebuilt.getLikes(1));
+    }
+
+    @Test
+    void rebuildKeepsFilmsAddedAndDropsFilmsRemovedWhileReadingCounts() {
+        LikeStorage likeStorage = mock(LikeStorage.class);
+        FilmStorage filmStorage = mock(FilmStorage.class);
+        PopularFilmsIndex rebuilt = new PopularFilmsIndex(likeStorage, filmStorage);
+        rebuilt.addFilm(film(1, 2000, 1));
+        when(likeStorage.getLikeCounts()).thenAnswer(invocation -> {
+            rebuilt.addFilm(film(2, 2010, 2));
+            rebuilt.removeFilm(1);
+            return Map.of(1, 0);
+        });
+        when(filmStorage.getFilmFacets()).thenReturn(Map.of());
+
+        rebuilt.rebuild();
+
+        assertEquals(List.of(2), rebuilt.getTopFilmIds(10));
+        assertEquals(List.of(2), rebuilt.getTopFilmIds(10, 2, 2010));
+    }
+
+    private static Film film(int id, int year, int... genreIds) {
+        Set<Genre> genres = new HashSet<>();
+        for (int genreId : genreIds) {
+            genres.add(new Genre(genreId, null));
+        }
+        return Film.builder().id(id).releaseDate(LocalDate.of(year, 1, 1)).genres(genres).build();
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import ru.yandex.practicum.filmorate.storage.event.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.like.LikeDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Запросы по ключу из FilmDbStorage, LikeDbStorage, UserDbStorage и EventDbStorage не должны сводиться
+// к полному просмотру таблицы, а выборки первых N по рейтингу должны читать индекс уже в нужном порядке.
+// Проверяются сами константы хранилищ, так что правка запроса не пройдёт мимо теста
+@SpringBootTest
+class QueryPlanTests {
+
+    private static final Pattern FINAL_TABLE = Pattern.compile(".*FROM FINAL TABLE \\((.*)\\)", Pattern.DOTALL);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    static List<String> storageQueries() {
+        return List.of(
+                FilmDbStorage.SELECT_FILM_BY_ID,
+                FilmDbStorage.FILM_EXISTS,
+                FilmDbStorage.SELECT_FILMS_PAGE,
+                FilmDbStorage.SELECT_FILMS_BY_IDS,
+                FilmDbStorage.SELECT_GENRE_IDS_BY_FILM,
+                FilmDbStorage.SELECT_GENRES_BY_FILM_IDS,
+                FilmDbStorage.UPDATE_FILM,
+                FilmDbStorage.DELETE_FILM_GENRE,
+                LikeDbStorage.ADD_LIKE_QUERY,
+                LikeDbStorage.DELETE_LIKE_QUERY,
+                LikeDbStorage.CHANGE_LIKE_COUNT_QUERY,
+                UserDbStorage.SELECT_USER_BY_ID,
+                UserDbStorage.SELECT_USERS_PAGE,
+                UserDbStorage.SELECT_USERS_BY_IDS,
+                UserDbStorage.UPDATE_USER,
+                UserDbStorage.DELETE_FRIEND,
+                EventDbStorage.GET_EVENTS_QUERY);
+    }
+
+    static List<String> topQueries() {
+        return List.of(
+                FilmDbStorage.SELECT_MOST_POPULAR_FILMS,
+                LikeDbStorage.GET_MOST_POPULAR_LIKE_QUERY);
+    }
+
+    @ParameterizedTest
+    @MethodSource("storageQueries")
+    void lookupQueriesUseIndexes(String sqlQuery) {
+        String plan = explain(sqlQuery);
+        assertFalse(plan.contains("tableScan") || plan.contains("table scan"),
+                "Запрос выполняется полным просмотром таблицы:\n" + plan);
+    }
+
+    @ParameterizedTest
+    @MethodSource("topQueries")
+    void topQueriesReadIndexInOrder(String sqlQuery) {
+        String plan = explain(sqlQuery);
+        assertTrue(plan.contains("index sorted"), "Запрос сортирует всю таблицу:\n" + plan);
+    }
+
+    // План SELECT ... FROM FINAL TABLE (UPDATE ...) показывает только чтение результата изменения,
+    // поэтому само изменение разбирается отдельно
+    private String explain(String sqlQuery) {
+        String sql = NamedParameterUtils.parseSqlStatementIntoString(sqlQuery);
+        Matcher dataChange = FINAL_TABLE.matcher(sql);
+        if (dataChange.matches()) {
+            sql = dataChange.group(1);
+        }
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+}
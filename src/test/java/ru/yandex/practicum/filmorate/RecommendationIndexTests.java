@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.like.LikePair;
+import ru.yandex.practicum.filmorate.storage.like.LikeStorage;
+import ru.yandex.practicum.filmorate.storage.like.RecommendationIndex;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class RecommendationIndexTests {
+
+    private RecommendationIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new RecommendationIndex(null, 2, 100);
+        like(1, 10, 11, 12);
+        like(2, 10, 11, 13, 14);
+        like(3, 10, 15);
+        like(4, 20, 21);
+    }
+
+    @Test
+    void recommendsFilmsOfMostSimilarUsersFirst() {
+        assertEquals(List.of(13, 14, 15), index.recommend(1, 10));
+        assertEquals(List.of(13), index.recommend(1, 1));
+    }
+
+    @Test
+    void removedLikesAndFilmsAreNotRecommended() {
+        index.likeRemoved(13, 2);
+        index.filmRemoved(14);
+        assertEquals(List.of(15), index.recommend(1, 10));
+    }
+
+    @Test
+    void userWithoutOverlapGetsNothing() {
+        assertEquals(List.of(), index.recommend(4, 10));
+    }
+
+    @Test
+    void rebuildKeepsLikesChangedWhileReadingStorage() {
+        LikeStorage likeStorage = mock(LikeStorage.class);
+        RecommendationIndex rebuilt = new RecommendationIndex(likeStorage, 2, 100);
+        rebuilt.likeAdded(10, 1);
+        rebuilt.likeAdded(11, 1);
+        // Хранилище отдаёт старое состояние, а лайки меняются уже во время чтения
+        doAnswer(invocation -> {
+            Consumer<LikePair> action = invocation.getArgument(0);
+            action.accept(new LikePair(10, 1));
+            action.accept(new LikePair(11, 1));
+            rebuilt.likeAdded(10, 2);
+            rebuilt.likeAdded(12, 2);
+            rebuilt.likeRemoved(11, 1);
+            action.accept(new LikePair(11, 2));
+            return null;
+        }).when(likeStorage).forEachLike(any());
+
+        rebuilt.rebuild();
+
+        assertEquals(List.of(11, 12), rebuilt.recommend(1, 10));
+        assertEquals(List.of(), rebuilt.recommend(2, 10));
+    }
+
+    private void like(int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            index.likeAdded(filmId, userId);
+        }
+    }
+}
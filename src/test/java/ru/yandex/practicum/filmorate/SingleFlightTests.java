@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.SingleFlight;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SingleFlight<Integer, String> flight = new SingleFlight<>("test", registry);
+
+    @Test
+    void concurrentCallsShareOneLoad() throws Exception {
+        int callers = 8;
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> flight.load(1, () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return "film";
+                })));
+            }
+            // Отпускаем загрузку, только когда все остальные вызовы уже ждут её результата
+            while (collapsed() < callers - 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("film", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(callers - 1, collapsed());
+    }
+
+    @Test
+    void failureIsNotRemembered() {
+        assertThrows(IllegalStateException.class, () -> flight.load(1, () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals("film", flight.load(1, () -> "film"));
+    }
+
+    private double collapsed() {
+        return registry.get("filmorate.singleflight.calls").tag("outcome", "collapsed").counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.RatingMpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Размер страницы меньше числа записей, чтобы обход проходил через несколько страниц
+@SpringBootTest(properties = "filmorate.stream.page-size=2")
+@AutoConfigureMockMvc
+class StreamPaginationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Test
+    void usersArePagedByKey() {
+        List<Integer> ids = createUsers("page-a", "page-b", "page-c");
+
+        List<User> first = userService.getUsers(ids.get(0) - 1, 2);
+        List<User> second = userService.getUsers(first.get(1).getId(), 2);
+
+        assertEquals(ids.subList(0, 2), first.stream().map(User::getId).toList());
+        assertEquals(ids.get(2), second.get(0).getId());
+        assertThrows(ValidationException.class, () -> userService.getUsers(0, 0));
+    }
+
+    @Test
+    void usersAreStreamedAsNdjsonAcrossPages() throws Exception {
+        List<Integer> ids = createUsers("ndjson-a", "ndjson-b", "ndjson-c");
+
+        List<Integer> streamed = stream("/users/stream").stream()
+                .map(line -> read(line, User.class).getId())
+                .toList();
+
+        assertTrue(streamed.containsAll(ids));
+        assertEquals(streamed.stream().sorted().distinct().toList(), streamed);
+        assertEquals(userService.getAllUsers().size(), streamed.size());
+    }
+
+    @Test
+    void filmsAreStreamedAsNdjsonAcrossPages() throws Exception {
+        for (String name : new String[]{"Поток-1", "Поток-2", "Поток-3"}) {
+            filmService.addFilm(Film.builder()
+                    .name(name)
+                    .description("Описание")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100L)
+                    .mpa(new RatingMpa(1, null))
+                    .genres(Set.of())
+                    .build());
+        }
+
+        List<Integer> streamed = stream("/films/stream").stream()
+                .map(line -> read(line, Film.class).getId())
+                .toList();
+
+        assertEquals(filmService.getAllFilms().stream().map(Film::getId).sorted().toList(), streamed);
+    }
+
+    @Test
+    void zeroPageSizeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new UserService(null, null, 0));
+    }
+
+    private List<Integer> createUsers(String... logins) {
+        return Arrays.stream(logins)
+                .map(login -> userService.createUser(User.builder()
+                        .email(login + "@example.com")
+                        .login(login)
+                        .name(login)
+                        .birthday(LocalDate.of(1990, 1, 1))
+                        .build()).getId())
+                .toList();
+    }
+
+    private List<String> stream(String path) throws Exception {
+        MvcResult started = mockMvc.perform(get(path))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        return body.lines().filter(line -> !line.isBlank()).toList();
+    }
+
+    private <T> T read(String line, Class<T> type) {
+        try {
+            return objectMapper.readValue(line, type);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class UserDbStorageTests {
+
+    @Autowired
+    private UserDbStorage userStorage;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void friendshipChangeIsReportedOnlyOnce() {
+        User user = userStorage.createUser(user("friendly"));
+        User friend = userStorage.createUser(user("friend"));
+
+        assertTrue(userStorage.addFriend(user.getId(), friend.getId()));
+        assertFalse(userStorage.addFriend(user.getId(), friend.getId()));
+        assertTrue(userStorage.isFriend(user.getId(), friend.getId()));
+
+        assertTrue(userStorage.removeFriend(user.getId(), friend.getId()));
+        assertFalse(userStorage.removeFriend(user.getId(), friend.getId()));
+        assertFalse(userStorage.isFriend(user.getId(), friend.getId()));
+    }
+
+    @Test
+    void rolledBackFriendshipDoesNotReachGraph() {
+        User user = userStorage.createUser(user("lonely"));
+        User friend = userStorage.createUser(user("stranger"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            userStorage.addFriend(user.getId(), friend.getId());
+            status.setRollbackOnly();
+        });
+
+        assertFalse(userStorage.isFriend(user.getId(), friend.getId()));
+        assertTrue(userStorage.addFriend(user.getId(), friend.getId()));
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@example.com")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
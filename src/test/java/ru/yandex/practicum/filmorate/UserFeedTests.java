@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.RatingMpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.EventLog;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class UserFeedTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private EventLog eventLog;
+
+    @Test
+    void feedListsFriendshipAndLikesInOrderAndPagesByEventId() {
+        User user = userService.createUser(user("feed-owner"));
+        User friend = userService.createUser(user("feed-friend"));
+        Film film = filmService.addFilm(Film.builder()
+                .name("Лента")
+                .description("Описание")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100L)
+                .mpa(new RatingMpa(1, null))
+                .genres(Set.of())
+                .build());
+
+        userService.addFriend(user.getId(), friend.getId());
+        filmService.addLike(film.getId(), user.getId());
+        filmService.deleteLike(film.getId(), user.getId());
+        eventLog.flush();
+
+        List<Event> feed = userService.getFeed(user.getId(), 0, 100);
+        assertEquals(List.of("FRIEND ADD " + friend.getId(), "LIKE ADD " + film.getId(),
+                "LIKE REMOVE " + film.getId()), feed.stream().map(UserFeedTests::describe).toList());
+
+        List<Event> rest = userService.getFeed(user.getId(), feed.get(0).getEventId(), 100);
+        assertEquals(feed.subList(1, 3), rest);
+    }
+
+    @Test
+    void repeatedFriendChangesAreLoggedOnce() {
+        User user = userService.createUser(user("feed-repeat-owner"));
+        User friend = userService.createUser(user("feed-repeat-friend"));
+
+        userService.addFriend(user.getId(), friend.getId());
+        userService.addFriend(user.getId(), friend.getId());
+        userService.removeFriend(user.getId(), friend.getId());
+        userService.removeFriend(user.getId(), friend.getId());
+        eventLog.flush();
+
+        assertEquals(List.of("FRIEND ADD " + friend.getId(), "FRIEND REMOVE " + friend.getId()),
+                userService.getFeed(user.getId(), 0, 100).stream().map(UserFeedTests::describe).toList());
+    }
+
+    private static String describe(Event event) {
+        return event.getEventType() + " " + event.getOperation() + " " + event.getEntityId();
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@example.com")
+                .login(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}